@@ -0,0 +1,37 @@
+package io.github.llamasystems.scopejdbc.processor;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Requests a compile-time generated {@code RowMapper} for the annotated record.
+ *
+ * <p>For a record {@code com.example.User}, {@link RowMapperProcessor} generates
+ * {@code com.example.UserRowMapper}, a final class implementing
+ * {@code io.github.llamasystems.scopejdbc.RowMapper<User>} with a shared {@code INSTANCE}. For a
+ * nested record {@code Outer.User} the generated class is {@code Outer_UserRowMapper}. The
+ * record must be non-generic, and neither it nor any type enclosing it may be private, since the
+ * generated class must be able to name it.
+ *
+ * <p>Columns are read by index: the first result column maps to the first record component, the
+ * second to the second, and so on. The query's select list must therefore name its columns in
+ * component order.
+ *
+ * <pre>{@code
+ * @GenerateRowMapper
+ * record User(long id, String username, boolean active) {}
+ *
+ * client.query("SELECT id, username, active FROM users", UserRowMapper.INSTANCE);
+ * }</pre>
+ *
+ * <p>The annotation is retained only in source, so neither it nor the processor is needed at run
+ * time.
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface GenerateRowMapper {
+}
@@ -0,0 +1,264 @@
+package io.github.llamasystems.scopejdbc.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.RecordComponentElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates index-based {@code RowMapper} implementations for records annotated with
+ * {@link GenerateRowMapper}.
+ *
+ * <p>The generated code calls the type-specific {@link java.sql.ResultSet} getter for each
+ * component directly, with no reflection, lookups, or boxing of primitive components, so it is
+ * as cheap as a hand-written lambda and needs no reflection configuration for GraalVM native
+ * images. Supported component types are:
+ *
+ * <ul>
+ *     <li>{@code boolean}, {@code byte}, {@code short}, {@code int}, {@code long}, {@code float},
+ *     and {@code double}, read with the matching primitive getter; SQL {@code NULL} yields the
+ *     JDBC default value, as with a hand-written mapper;</li>
+ *     <li>their wrapper types, read with the primitive getter and mapped to {@code null} when
+ *     {@link java.sql.ResultSet#wasNull()} reports SQL {@code NULL};</li>
+ *     <li>{@code String}, {@code BigDecimal}, {@code byte[]}, {@code java.sql.Date},
+ *     {@code java.sql.Time}, and {@code java.sql.Timestamp}, read with their dedicated getters;</li>
+ *     <li>{@code LocalDate}, {@code LocalTime}, {@code LocalDateTime}, {@code OffsetDateTime}, and
+ *     {@code UUID}, read with {@code getObject(int, Class)};</li>
+ *     <li>enums, read as their constant name with {@code getString}.</li>
+ * </ul>
+ *
+ * <p>Any other component type, a generic record, or a private record is reported as a
+ * compilation error.
+ */
+public final class RowMapperProcessor extends AbstractProcessor {
+
+    private static final String ROW_MAPPER = "io.github.llamasystems.scopejdbc.RowMapper";
+
+    private static final Map<TypeKind, String> PRIMITIVE_GETTERS = Map.of(
+            TypeKind.BOOLEAN, "getBoolean",
+            TypeKind.BYTE, "getByte",
+            TypeKind.SHORT, "getShort",
+            TypeKind.INT, "getInt",
+            TypeKind.LONG, "getLong",
+            TypeKind.FLOAT, "getFloat",
+            TypeKind.DOUBLE, "getDouble"
+    );
+
+    private static final Map<String, String> WRAPPER_GETTERS = Map.of(
+            "java.lang.Boolean", "getBoolean",
+            "java.lang.Byte", "getByte",
+            "java.lang.Short", "getShort",
+            "java.lang.Integer", "getInt",
+            "java.lang.Long", "getLong",
+            "java.lang.Float", "getFloat",
+            "java.lang.Double", "getDouble"
+    );
+
+    private static final Map<String, String> OBJECT_GETTERS = Map.of(
+            "java.lang.String", "getString",
+            "java.math.BigDecimal", "getBigDecimal",
+            "java.sql.Date", "getDate",
+            "java.sql.Time", "getTime",
+            "java.sql.Timestamp", "getTimestamp"
+    );
+
+    private static final Set<String> TYPED_OBJECTS = Set.of(
+            "java.time.LocalDate",
+            "java.time.LocalTime",
+            "java.time.LocalDateTime",
+            "java.time.OffsetDateTime",
+            "java.util.UUID"
+    );
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Set.of(GenerateRowMapper.class.getCanonicalName());
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(GenerateRowMapper.class)) {
+            if (element.getKind() != ElementKind.RECORD) {
+                error(element, "@GenerateRowMapper can only be applied to records");
+                continue;
+            }
+
+            TypeElement record = (TypeElement) element;
+            if (record.getModifiers().contains(Modifier.PRIVATE)) {
+                error(record, "@GenerateRowMapper records must not be private");
+                continue;
+            }
+            Element privateEnclosing = privateEnclosingType(record);
+            if (privateEnclosing != null) {
+                error(record, "@GenerateRowMapper records must not be nested in a private type: "
+                        + privateEnclosing.getSimpleName());
+                continue;
+            }
+            if (!record.getTypeParameters().isEmpty()) {
+                error(record, "@GenerateRowMapper records must not be generic");
+                continue;
+            }
+
+            generate(record);
+        }
+        return true;
+    }
+
+    private void generate(TypeElement record) {
+        List<String> reads = new ArrayList<>();
+        List<? extends RecordComponentElement> components = record.getRecordComponents();
+
+        for (int i = 0; i < components.size(); i++) {
+            RecordComponentElement component = components.get(i);
+            String read = read(component.asType(), i + 1, "c" + (i + 1));
+            if (read == null) {
+                error(component, "Unsupported @GenerateRowMapper component type: " + component.asType());
+                return;
+            }
+            reads.add(read);
+        }
+
+        String packageName = packageOf(record).getQualifiedName().toString();
+        String recordName = record.getQualifiedName().toString();
+        String mapperName = flatName(record) + "RowMapper";
+        String qualifiedMapperName = packageName.isEmpty() ? mapperName : packageName + "." + mapperName;
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("public final class ").append(mapperName)
+                .append(" implements ").append(ROW_MAPPER).append("<").append(recordName).append("> {\n\n")
+                .append("    public static final ").append(mapperName).append(" INSTANCE = new ")
+                .append(mapperName).append("();\n\n")
+                .append("    private ").append(mapperName).append("() {\n    }\n\n")
+                .append("    @Override\n")
+                .append("    public ").append(recordName)
+                .append(" map(java.sql.ResultSet resultSet) throws java.sql.SQLException {\n");
+        for (String read : reads) {
+            source.append(read);
+        }
+        source.append("        return new ").append(recordName).append("(");
+        for (int i = 1; i <= components.size(); i++) {
+            source.append(i > 1 ? ", " : "").append("c").append(i);
+        }
+        source.append(");\n    }\n}\n");
+
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedMapperName, record).openWriter()) {
+            writer.write(source.toString());
+        } catch (IOException e) {
+            error(record, "Failed to write " + qualifiedMapperName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the statements that read column {@code index} into local variable {@code name}, or
+     * {@code null} if the type is not supported.
+     */
+    private String read(TypeMirror type, int index, String name) {
+        String primitiveGetter = PRIMITIVE_GETTERS.get(type.getKind());
+        if (primitiveGetter != null) {
+            return "        " + type + " " + name + " = resultSet." + primitiveGetter + "(" + index + ");\n";
+        }
+
+        if (type.getKind() == TypeKind.ARRAY
+                && ((ArrayType) type).getComponentType().getKind() == TypeKind.BYTE) {
+            return "        byte[] " + name + " = resultSet.getBytes(" + index + ");\n";
+        }
+
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+
+        TypeElement typeElement = (TypeElement) ((DeclaredType) type).asElement();
+        String typeName = typeElement.getQualifiedName().toString();
+
+        String wrapperGetter = WRAPPER_GETTERS.get(typeName);
+        if (wrapperGetter != null) {
+            String primitive = processingEnv.getTypeUtils().unboxedType(type).toString();
+            return "        " + primitive + " " + name + "Value = resultSet." + wrapperGetter + "(" + index + ");\n"
+                    + "        " + typeName + " " + name + " = resultSet.wasNull() ? null : " + name + "Value;\n";
+        }
+
+        String objectGetter = OBJECT_GETTERS.get(typeName);
+        if (objectGetter != null) {
+            return "        " + typeName + " " + name + " = resultSet." + objectGetter + "(" + index + ");\n";
+        }
+
+        if (TYPED_OBJECTS.contains(typeName)) {
+            return "        " + typeName + " " + name + " = resultSet.getObject(" + index + ", " + typeName + ".class);\n";
+        }
+
+        if (typeElement.getKind() == ElementKind.ENUM) {
+            return "        java.lang.String " + name + "Name = resultSet.getString(" + index + ");\n"
+                    + "        " + typeName + " " + name + " = " + name + "Name == null ? null : "
+                    + typeName + ".valueOf(" + name + "Name);\n";
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the innermost private type enclosing {@code record}, or {@code null} if none is
+     * private; the generated mapper could not reference the record through such a type.
+     */
+    private static Element privateEnclosingType(TypeElement record) {
+        Element enclosing = record.getEnclosingElement();
+        while (enclosing.getKind() != ElementKind.PACKAGE) {
+            if (enclosing.getModifiers().contains(Modifier.PRIVATE)) {
+                return enclosing;
+            }
+            enclosing = enclosing.getEnclosingElement();
+        }
+        return null;
+    }
+
+    private static PackageElement packageOf(Element element) {
+        Element current = element;
+        while (current.getKind() != ElementKind.PACKAGE) {
+            current = current.getEnclosingElement();
+        }
+        return (PackageElement) current;
+    }
+
+    /**
+     * Returns the record's simple name prefixed by the simple names of its enclosing types,
+     * joined with underscores, so that nested records with the same name do not collide.
+     */
+    private static String flatName(TypeElement record) {
+        StringBuilder name = new StringBuilder(record.getSimpleName());
+        Element enclosing = record.getEnclosingElement();
+        while (enclosing.getKind() != ElementKind.PACKAGE) {
+            name.insert(0, enclosing.getSimpleName() + "_");
+            enclosing = enclosing.getEnclosingElement();
+        }
+        return name.toString();
+    }
+
+    private void error(Element element, String message) {
+        Messager messager = processingEnv.getMessager();
+        messager.printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
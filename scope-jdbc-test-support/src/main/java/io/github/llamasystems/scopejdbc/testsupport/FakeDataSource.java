@@ -0,0 +1,485 @@
+package io.github.llamasystems.scopejdbc.testsupport;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * In-process {@link DataSource} that hands out fake connections with configurable per-operation
+ * latency, for reproducing pool contention and scope-lifecycle behavior without a database.
+ *
+ * <p>The data source models a fixed-size pool: {@link #getConnection()} waits, in FIFO order, for
+ * one of {@code poolSize} slots, then pays the profile's acquire latency. Closing the connection
+ * returns its slot. Connections honor the full {@link Connection} contract that
+ * {@code ConnectionScope} relies on (auto-commit and read-only state, commit, rollback, close),
+ * and statements return a fixed number of synthetic rows. Row {@code n} (starting at one) reports
+ * {@code n} from every numeric getter and {@code getObject}, and {@code "n"} from
+ * {@code getString}. Updates report one affected row, and generated keys increase from one.
+ *
+ * <p>Connection, statement, and result-set objects are {@link Proxy} instances, so every JDBC
+ * method not listed above is accepted and returns {@code null}, {@code false}, or zero. This module
+ * is intended for tests and benchmarks only.
+ *
+ * <p>This class is thread-safe. Each returned connection, like a real one, is not.
+ */
+public final class FakeDataSource implements DataSource {
+
+    private final LatencyProfile latency;
+    private final int rowsPerQuery;
+    private final Semaphore pool;
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder poolWaitNanos = new LongAdder();
+    private final LongAccumulator maxPoolWaitNanos = new LongAccumulator(Math::max, 0L);
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder rollbacks = new LongAdder();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicLong generatedKeys = new AtomicLong();
+
+    private FakeDataSource(LatencyProfile latency, int poolSize, int rowsPerQuery) {
+        this.latency = latency;
+        this.rowsPerQuery = rowsPerQuery;
+        this.pool = new Semaphore(poolSize, true);
+    }
+
+    /**
+     * Creates a fake data source.
+     *
+     * @param latency      per-operation latencies to inject
+     * @param poolSize     maximum number of connections open at once
+     * @param rowsPerQuery number of rows every query returns
+     * @return fake data source
+     * @throws NullPointerException     if {@code latency} is {@code null}
+     * @throws IllegalArgumentException if {@code poolSize} is not positive or {@code rowsPerQuery}
+     *                                  is negative
+     */
+    public static FakeDataSource create(LatencyProfile latency, int poolSize, int rowsPerQuery) {
+        Objects.requireNonNull(latency, "latency");
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException("poolSize must be positive");
+        }
+        if (rowsPerQuery < 0) {
+            throw new IllegalArgumentException("rowsPerQuery must not be negative");
+        }
+        return new FakeDataSource(latency, poolSize, rowsPerQuery);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            pool.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a pooled connection", e);
+        }
+
+        long waited = System.nanoTime() - start;
+        acquisitions.increment();
+        poolWaitNanos.add(waited);
+        maxPoolWaitNanos.accumulate(waited);
+        openConnections.incrementAndGet();
+
+        LatencyProfile.pause(latency.acquireNanos());
+        return proxy(Connection.class, new ConnectionHandler());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+
+    /**
+     * Returns the number of successful {@link #getConnection()} calls.
+     *
+     * @return connection acquisitions
+     */
+    public long acquisitions() {
+        return acquisitions.sum();
+    }
+
+    /**
+     * Returns the total time callers spent waiting for a free pool slot, excluding the injected
+     * acquire latency.
+     *
+     * @return total pool wait in nanoseconds
+     */
+    public long totalPoolWaitNanos() {
+        return poolWaitNanos.sum();
+    }
+
+    /**
+     * Returns the longest single wait for a free pool slot.
+     *
+     * @return maximum pool wait in nanoseconds
+     */
+    public long maxPoolWaitNanos() {
+        return maxPoolWaitNanos.get();
+    }
+
+    /**
+     * Returns the number of executed statements.
+     *
+     * @return statement executions
+     */
+    public long executions() {
+        return executions.sum();
+    }
+
+    /**
+     * Returns the number of {@code commit()} calls.
+     *
+     * @return commits
+     */
+    public long commits() {
+        return commits.sum();
+    }
+
+    /**
+     * Returns the number of {@code rollback()} calls.
+     *
+     * @return rollbacks
+     */
+    public long rollbacks() {
+        return rollbacks.sum();
+    }
+
+    /**
+     * Returns the number of connections currently borrowed and not yet closed.
+     *
+     * @return open connections
+     */
+    public int openConnections() {
+        return openConnections.get();
+    }
+
+    /**
+     * Resets every counter except {@link #openConnections()}.
+     */
+    public void resetStatistics() {
+        acquisitions.reset();
+        poolWaitNanos.reset();
+        maxPoolWaitNanos.reset();
+        executions.reset();
+        commits.reset();
+        rollbacks.reset();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException("FakeDataSource does not use java.util.logging");
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("FakeDataSource does not wrap " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(FakeDataSource.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    /**
+     * Handles {@link Object} methods on a proxy, or returns {@code null} if {@code method} is not
+     * one of them.
+     */
+    private static Object objectMethod(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return method.getParameterCount() == 1 ? proxy == args[0] : null;
+            case "hashCode":
+                return method.getParameterCount() == 0 ? System.identityHashCode(proxy) : null;
+            case "toString":
+                return method.getParameterCount() == 0
+                        ? "Fake" + proxy.getClass().getInterfaces()[0].getSimpleName() + "@"
+                        + Integer.toHexString(System.identityHashCode(proxy))
+                        : null;
+            default:
+                return null;
+        }
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) {
+            return null;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == char.class) {
+            return '\0';
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == float.class) {
+            return 0f;
+        }
+        if (type == double.class) {
+            return 0d;
+        }
+        if (type == byte.class) {
+            return (byte) 0;
+        }
+        if (type == short.class) {
+            return (short) 0;
+        }
+        return 0;
+    }
+
+    private final class ConnectionHandler implements InvocationHandler {
+
+        private boolean closed;
+        private boolean autoCommit = true;
+        private boolean readOnly;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+            Object objectResult = objectMethod(proxy, method, args);
+            if (objectResult != null) {
+                return objectResult;
+            }
+
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        openConnections.decrementAndGet();
+                        pool.release();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "isValid":
+                    return !closed;
+                default:
+                    break;
+            }
+
+            if (closed) {
+                throw new SQLException("Connection is closed");
+            }
+
+            switch (method.getName()) {
+                case "setAutoCommit":
+                    LatencyProfile.pause(latency.setAutoCommitNanos());
+                    autoCommit = (Boolean) args[0];
+                    return null;
+                case "getAutoCommit":
+                    return autoCommit;
+                case "setReadOnly":
+                    readOnly = (Boolean) args[0];
+                    return null;
+                case "isReadOnly":
+                    return readOnly;
+                case "commit":
+                    LatencyProfile.pause(latency.commitNanos());
+                    commits.increment();
+                    return null;
+                case "rollback":
+                    LatencyProfile.pause(latency.rollbackNanos());
+                    rollbacks.increment();
+                    return null;
+                case "prepareStatement":
+                case "prepareCall":
+                    LatencyProfile.pause(latency.prepareNanos());
+                    return proxy(method.getReturnType().asSubclass(Statement.class), new StatementHandler(proxy));
+                case "createStatement":
+                    return proxy(Statement.class, new StatementHandler(proxy));
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        }
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+
+        private final Object connection;
+        private boolean closed;
+        private boolean generatedKeysAvailable;
+
+        StatementHandler(Object connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+            Object objectResult = objectMethod(proxy, method, args);
+            if (objectResult != null) {
+                return objectResult;
+            }
+
+            switch (method.getName()) {
+                case "close":
+                    closed = true;
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "getConnection":
+                    return connection;
+                default:
+                    break;
+            }
+
+            if (closed) {
+                throw new SQLException("Statement is closed");
+            }
+
+            switch (method.getName()) {
+                case "executeQuery":
+                    execute();
+                    return proxy(ResultSet.class, new ResultSetHandler(rowsPerQuery, 1L));
+                case "executeUpdate":
+                case "executeLargeUpdate":
+                    execute();
+                    generatedKeysAvailable = true;
+                    return method.getReturnType() == long.class ? (Object) 1L : (Object) 1;
+                case "execute":
+                    execute();
+                    return false;
+                case "executeBatch":
+                    execute();
+                    return new int[0];
+                case "getGeneratedKeys":
+                    if (!generatedKeysAvailable) {
+                        return proxy(ResultSet.class, new ResultSetHandler(0, 0L));
+                    }
+                    generatedKeysAvailable = false;
+                    return proxy(ResultSet.class, new ResultSetHandler(1, generatedKeys.incrementAndGet()));
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        }
+
+        private void execute() {
+            LatencyProfile.pause(latency.executeNanos());
+            executions.increment();
+        }
+    }
+
+    private static final class ResultSetHandler implements InvocationHandler {
+
+        private final int rows;
+        private final long firstValue;
+        private int position;
+        private boolean closed;
+
+        ResultSetHandler(int rows, long firstValue) {
+            this.rows = rows;
+            this.firstValue = firstValue;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+            Object objectResult = objectMethod(proxy, method, args);
+            if (objectResult != null) {
+                return objectResult;
+            }
+
+            switch (method.getName()) {
+                case "close":
+                    closed = true;
+                    return null;
+                case "isClosed":
+                    return closed;
+                default:
+                    break;
+            }
+
+            if (closed) {
+                throw new SQLException("ResultSet is closed");
+            }
+
+            if (method.getName().equals("next")) {
+                if (position <= rows) {
+                    position++;
+                }
+                return position <= rows;
+            }
+
+            if (!isColumnGetter(method)) {
+                return defaultValue(method.getReturnType());
+            }
+
+            if (position < 1 || position > rows) {
+                throw new SQLException("ResultSet is not positioned on a row");
+            }
+
+            long value = firstValue + position - 1;
+            Class<?> type = method.getParameterCount() == 2 && args[1] instanceof Class<?> requested
+                    ? requested
+                    : method.getReturnType();
+            if (type == long.class || type == Long.class || type == Object.class || type == Number.class) {
+                return value;
+            } else if (type == int.class || type == Integer.class) {
+                return (int) value;
+            } else if (type == short.class || type == Short.class) {
+                return (short) value;
+            } else if (type == byte.class || type == Byte.class) {
+                return (byte) value;
+            } else if (type == double.class || type == Double.class) {
+                return (double) value;
+            } else if (type == float.class || type == Float.class) {
+                return (float) value;
+            } else if (type == boolean.class || type == Boolean.class) {
+                return value != 0L;
+            } else if (type == String.class) {
+                return Long.toString(value);
+            }
+            return defaultValue(type);
+        }
+
+        /**
+         * Returns whether {@code method} reads a column value, i.e. is a {@code getXxx} method
+         * taking a column index or label.
+         */
+        private static boolean isColumnGetter(Method method) {
+            if (!method.getName().startsWith("get") || method.getParameterCount() == 0) {
+                return false;
+            }
+            Class<?> column = method.getParameterTypes()[0];
+            return column == int.class || column == String.class;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package io.github.llamasystems.scopejdbc.testsupport;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Immutable set of per-operation latencies injected by {@link FakeDataSource}.
+ *
+ * <p>Each latency is applied by parking the calling thread, so it consumes no CPU and behaves
+ * like a blocking network round trip, including on virtual threads.
+ *
+ * <pre>{@code
+ * LatencyProfile lan = LatencyProfile.none()
+ *         .withAcquire(Duration.ofNanos(50_000))
+ *         .withExecute(Duration.ofNanos(300_000))
+ *         .withCommit(Duration.ofMillis(1));
+ * }</pre>
+ */
+public final class LatencyProfile {
+
+    private static final LatencyProfile NONE = new LatencyProfile(0L, 0L, 0L, 0L, 0L, 0L);
+
+    private final long acquireNanos;
+    private final long prepareNanos;
+    private final long executeNanos;
+    private final long commitNanos;
+    private final long rollbackNanos;
+    private final long setAutoCommitNanos;
+
+    private LatencyProfile(long acquireNanos, long prepareNanos, long executeNanos, long commitNanos,
+                           long rollbackNanos, long setAutoCommitNanos) {
+        this.acquireNanos = acquireNanos;
+        this.prepareNanos = prepareNanos;
+        this.executeNanos = executeNanos;
+        this.commitNanos = commitNanos;
+        this.rollbackNanos = rollbackNanos;
+        this.setAutoCommitNanos = setAutoCommitNanos;
+    }
+
+    /**
+     * Returns a profile with no injected latency.
+     *
+     * @return zero-latency profile
+     */
+    public static LatencyProfile none() {
+        return NONE;
+    }
+
+    /**
+     * Returns a copy with the given {@code DataSource.getConnection()} latency, paid after a pool
+     * slot has been obtained.
+     *
+     * @param latency connection acquisition latency
+     * @return updated profile
+     */
+    public LatencyProfile withAcquire(Duration latency) {
+        return new LatencyProfile(nanos(latency), prepareNanos, executeNanos, commitNanos, rollbackNanos,
+                setAutoCommitNanos);
+    }
+
+    /**
+     * Returns a copy with the given {@code Connection.prepareStatement} latency.
+     *
+     * @param latency statement preparation latency
+     * @return updated profile
+     */
+    public LatencyProfile withPrepare(Duration latency) {
+        return new LatencyProfile(acquireNanos, nanos(latency), executeNanos, commitNanos, rollbackNanos,
+                setAutoCommitNanos);
+    }
+
+    /**
+     * Returns a copy with the given {@code executeQuery}/{@code executeUpdate}/{@code execute}
+     * latency.
+     *
+     * @param latency statement execution latency
+     * @return updated profile
+     */
+    public LatencyProfile withExecute(Duration latency) {
+        return new LatencyProfile(acquireNanos, prepareNanos, nanos(latency), commitNanos, rollbackNanos,
+                setAutoCommitNanos);
+    }
+
+    /**
+     * Returns a copy with the given {@code Connection.commit()} latency.
+     *
+     * @param latency commit latency
+     * @return updated profile
+     */
+    public LatencyProfile withCommit(Duration latency) {
+        return new LatencyProfile(acquireNanos, prepareNanos, executeNanos, nanos(latency), rollbackNanos,
+                setAutoCommitNanos);
+    }
+
+    /**
+     * Returns a copy with the given {@code Connection.rollback()} latency.
+     *
+     * @param latency rollback latency
+     * @return updated profile
+     */
+    public LatencyProfile withRollback(Duration latency) {
+        return new LatencyProfile(acquireNanos, prepareNanos, executeNanos, commitNanos, nanos(latency),
+                setAutoCommitNanos);
+    }
+
+    /**
+     * Returns a copy with the given {@code Connection.setAutoCommit} latency.
+     *
+     * @param latency auto-commit change latency
+     * @return updated profile
+     */
+    public LatencyProfile withSetAutoCommit(Duration latency) {
+        return new LatencyProfile(acquireNanos, prepareNanos, executeNanos, commitNanos, rollbackNanos,
+                nanos(latency));
+    }
+
+    long acquireNanos() {
+        return acquireNanos;
+    }
+
+    long prepareNanos() {
+        return prepareNanos;
+    }
+
+    long executeNanos() {
+        return executeNanos;
+    }
+
+    long commitNanos() {
+        return commitNanos;
+    }
+
+    long rollbackNanos() {
+        return rollbackNanos;
+    }
+
+    long setAutoCommitNanos() {
+        return setAutoCommitNanos;
+    }
+
+    /**
+     * Parks the current thread for {@code nanos}, resuming the wait after spurious wake-ups. An
+     * interrupt ends the wait early and leaves the thread's interrupt status set.
+     */
+    static void pause(long nanos) {
+        if (nanos <= 0L) {
+            return;
+        }
+
+        long deadline = System.nanoTime() + nanos;
+        long remaining = nanos;
+        while (remaining > 0L && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(remaining);
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    private static long nanos(Duration latency) {
+        Objects.requireNonNull(latency, "latency");
+        if (latency.isNegative()) {
+            throw new IllegalArgumentException("latency must not be negative");
+        }
+        return latency.toNanos();
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyProfile{acquireNanos=" + acquireNanos + ", prepareNanos=" + prepareNanos
+                + ", executeNanos=" + executeNanos + ", commitNanos=" + commitNanos
+                + ", rollbackNanos=" + rollbackNanos + ", setAutoCommitNanos=" + setAutoCommitNanos + "}";
+    }
+}
@@ -0,0 +1,358 @@
+package io.github.llamasystems.scopejdbc.testsupport;
+
+import io.github.llamasystems.scopejdbc.ConnectionScope;
+import io.github.llamasystems.scopejdbc.JdbcClient;
+import io.github.llamasystems.scopejdbc.Mode;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Drives {@link ConnectionScope} from many threads at a fixed concurrency and reports throughput,
+ * latency percentiles, and pool wait time.
+ *
+ * <p>Each worker thread repeatedly runs one unit of work: it opens a scope (transactional when a
+ * {@link Mode} is configured), runs the supplied block against the scope's {@link JdbcClient},
+ * commits if transactional, and closes the scope. Units of work that finish during the warmup are
+ * discarded. The harness works with any {@link DataSource}; paired with a {@link FakeDataSource}
+ * it also reports how long workers waited for a pool slot.
+ *
+ * <pre>{@code
+ * FakeDataSource dataSource = FakeDataSource.create(
+ *         LatencyProfile.none().withExecute(Duration.ofNanos(200_000)).withCommit(Duration.ofMillis(1)), 16, 1);
+ *
+ * LoadReport report = LoadHarness.of(dataSource)
+ *         .withConcurrency(64)
+ *         .withWarmup(Duration.ofSeconds(1))
+ *         .withDuration(Duration.ofSeconds(5))
+ *         .withTransactional(Mode.READ_WRITE)
+ *         .run(client -> client.update("INSERT INTO events(type) VALUES (?)", "click"));
+ * }</pre>
+ *
+ * <p>Instances are immutable; every {@code with} method returns a modified copy.
+ */
+public final class LoadHarness {
+
+    private final DataSource dataSource;
+    private final int concurrency;
+    private final Duration warmup;
+    private final Duration duration;
+    private final Mode mode;
+    private final ThreadFactory threadFactory;
+
+    private LoadHarness(DataSource dataSource, int concurrency, Duration warmup, Duration duration, Mode mode,
+                        ThreadFactory threadFactory) {
+        this.dataSource = dataSource;
+        this.concurrency = concurrency;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.mode = mode;
+        this.threadFactory = threadFactory;
+    }
+
+    /**
+     * Creates a harness with one worker, no warmup, a one-second measured window,
+     * non-transactional scopes, and platform daemon threads.
+     *
+     * @param dataSource data source the scopes are opened against
+     * @return harness
+     * @throws NullPointerException if {@code dataSource} is {@code null}
+     */
+    public static LoadHarness of(DataSource dataSource) {
+        Objects.requireNonNull(dataSource, "dataSource");
+        return new LoadHarness(dataSource, 1, Duration.ZERO, Duration.ofSeconds(1), null, runnable -> {
+            Thread thread = new Thread(runnable, "scope-jdbc-load");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns a copy with the given number of worker threads.
+     *
+     * @param concurrency number of workers, each with at most one open scope
+     * @return updated harness
+     * @throws IllegalArgumentException if {@code concurrency} is not positive
+     */
+    public LoadHarness withConcurrency(int concurrency) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("concurrency must be positive");
+        }
+        return new LoadHarness(dataSource, concurrency, warmup, duration, mode, threadFactory);
+    }
+
+    /**
+     * Returns a copy with the given warmup period, whose results are discarded.
+     *
+     * @param warmup warmup period
+     * @return updated harness
+     * @throws NullPointerException     if {@code warmup} is {@code null}
+     * @throws IllegalArgumentException if {@code warmup} is negative
+     */
+    public LoadHarness withWarmup(Duration warmup) {
+        return new LoadHarness(dataSource, concurrency, nonNegative(warmup, "warmup"), duration, mode, threadFactory);
+    }
+
+    /**
+     * Returns a copy with the given measured window.
+     *
+     * @param duration measured window
+     * @return updated harness
+     * @throws NullPointerException     if {@code duration} is {@code null}
+     * @throws IllegalArgumentException if {@code duration} is negative
+     */
+    public LoadHarness withDuration(Duration duration) {
+        return new LoadHarness(dataSource, concurrency, warmup, nonNegative(duration, "duration"), mode, threadFactory);
+    }
+
+    /**
+     * Returns a copy that opens transactional scopes in the given mode and commits after each
+     * unit of work; {@code null} restores non-transactional scopes.
+     *
+     * @param mode transaction mode, or {@code null}
+     * @return updated harness
+     */
+    public LoadHarness withTransactional(Mode mode) {
+        return new LoadHarness(dataSource, concurrency, warmup, duration, mode, threadFactory);
+    }
+
+    /**
+     * Returns a copy that creates workers with the given factory, for example a virtual-thread
+     * factory on Java 21 or later.
+     *
+     * @param threadFactory worker thread factory
+     * @return updated harness
+     * @throws NullPointerException if {@code threadFactory} is {@code null}
+     */
+    public LoadHarness withThreadFactory(ThreadFactory threadFactory) {
+        Objects.requireNonNull(threadFactory, "threadFactory");
+        return new LoadHarness(dataSource, concurrency, warmup, duration, mode, threadFactory);
+    }
+
+    /**
+     * Runs the load and blocks until every worker has stopped.
+     *
+     * @param work block run against each scope's client
+     * @return measurements for the measured window
+     * @throws NullPointerException  if {@code work} is {@code null}
+     * @throws IllegalStateException if the calling thread is interrupted
+     */
+    public LoadReport run(Consumer<JdbcClient> work) {
+        Objects.requireNonNull(work, "work");
+
+        Run run = new Run(work);
+        List<Thread> threads = new ArrayList<>(concurrency);
+        List<Worker> workers = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            Worker worker = new Worker(run);
+            workers.add(worker);
+            threads.add(threadFactory.newThread(worker));
+        }
+
+        threads.forEach(Thread::start);
+        run.start.countDown();
+
+        long measuredStart;
+        long measuredEnd;
+        long meanPoolWait = 0L;
+        long maxPoolWait = 0L;
+        try {
+            TimeUnit.NANOSECONDS.sleep(warmup.toNanos());
+
+            if (dataSource instanceof FakeDataSource fake) {
+                fake.resetStatistics();
+            }
+            measuredStart = System.nanoTime();
+            run.measuring = true;
+
+            TimeUnit.NANOSECONDS.sleep(duration.toNanos());
+
+            run.measuring = false;
+            measuredEnd = System.nanoTime();
+
+            // Read now: units of work still finishing while the workers are joined would otherwise
+            // add acquisitions from outside the measured window.
+            if (dataSource instanceof FakeDataSource fake) {
+                long acquisitions = fake.acquisitions();
+                meanPoolWait = acquisitions == 0L ? 0L : fake.totalPoolWaitNanos() / acquisitions;
+                maxPoolWait = fake.maxPoolWaitNanos();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running load", e);
+        } finally {
+            run.stopped = true;
+            joinAll(threads);
+        }
+
+        return report(workers, measuredEnd - measuredStart, meanPoolWait, maxPoolWait);
+    }
+
+    private LoadReport report(List<Worker> workers, long elapsedNanos, long meanPoolWait, long maxPoolWait) {
+        int total = 0;
+        long errors = 0L;
+        Worker firstFailed = null;
+        for (Worker worker : workers) {
+            total += worker.count;
+            errors += worker.errors;
+            if (worker.firstFailure != null
+                    && (firstFailed == null || worker.firstFailureNanos - firstFailed.firstFailureNanos < 0L)) {
+                firstFailed = worker;
+            }
+        }
+
+        long[] latencies = new long[total];
+        int offset = 0;
+        for (Worker worker : workers) {
+            System.arraycopy(worker.latencies, 0, latencies, offset, worker.count);
+            offset += worker.count;
+        }
+        Arrays.sort(latencies);
+
+        return new LoadReport(
+                concurrency,
+                total,
+                errors,
+                elapsedNanos,
+                percentile(latencies, 0.50),
+                percentile(latencies, 0.99),
+                percentile(latencies, 0.999),
+                total == 0 ? 0L : latencies[total - 1],
+                meanPoolWait,
+                maxPoolWait,
+                firstFailed == null ? null : firstFailed.firstFailure
+        );
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0L;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    private static void joinAll(List<Thread> threads) {
+        boolean interrupted = false;
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Duration nonNegative(Duration value, String name) {
+        Objects.requireNonNull(value, name);
+        if (value.isNegative()) {
+            throw new IllegalArgumentException(name + " must not be negative");
+        }
+        return value;
+    }
+
+    /**
+     * State shared by the workers of one run.
+     */
+    private final class Run {
+
+        private final Consumer<JdbcClient> work;
+        private final CountDownLatch start = new CountDownLatch(1);
+        private volatile boolean measuring;
+        private volatile boolean stopped;
+
+        Run(Consumer<JdbcClient> work) {
+            this.work = work;
+        }
+
+        void unitOfWork() {
+            try (ConnectionScope scope = mode == null
+                    ? ConnectionScope.open(dataSource)
+                    : ConnectionScope.openTransactional(dataSource, mode)) {
+                scope.executeVoid(work);
+                if (mode != null) {
+                    scope.commit();
+                }
+            }
+        }
+    }
+
+    /**
+     * One worker thread; its latency buffer and failure are read by the harness only after the
+     * thread exits. A worker stops early if a unit of work throws an {@link Error}.
+     */
+    private static final class Worker implements Runnable {
+
+        private final Run run;
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+        private Throwable firstFailure;
+        private long firstFailureNanos;
+
+        Worker(Run run) {
+            this.run = run;
+        }
+
+        @Override
+        public void run() {
+            try {
+                run.start.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            while (!run.stopped) {
+                long start = System.nanoTime();
+                Throwable failure = null;
+                try {
+                    run.unitOfWork();
+                } catch (RuntimeException | Error e) {
+                    failure = e;
+                }
+                long latency = System.nanoTime() - start;
+                boolean measured = run.measuring;
+
+                // An Error is kept even outside the measured window, since it stops this worker
+                // and so skews the whole run.
+                boolean error = failure instanceof Error;
+                if (firstFailure == null && (measured || error)) {
+                    firstFailure = failure;
+                    firstFailureNanos = start;
+                }
+                if (error) {
+                    if (measured) {
+                        errors++;
+                    }
+                    return;
+                }
+
+                if (!measured) {
+                    continue;
+                }
+                if (failure != null) {
+                    errors++;
+                    continue;
+                }
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = latency;
+            }
+        }
+    }
+}
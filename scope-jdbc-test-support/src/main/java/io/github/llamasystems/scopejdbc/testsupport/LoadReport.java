@@ -0,0 +1,60 @@
+package io.github.llamasystems.scopejdbc.testsupport;
+
+/**
+ * Result of one {@link LoadHarness} run.
+ *
+ * <p>Latencies cover one whole unit of work: opening the scope, running the work, committing when
+ * transactional, and closing the scope. Percentiles are exact, computed over every successful
+ * unit of work in the measured window. Pool wait figures are only reported when the harness drives
+ * a {@link FakeDataSource}; otherwise they are zero. They are read when the measured window ends,
+ * so units of work still finishing afterwards do not count.
+ *
+ * @param concurrency         number of worker threads
+ * @param operations          successful units of work in the measured window
+ * @param errors              units of work that threw in the measured window
+ * @param elapsedNanos        length of the measured window
+ * @param p50Nanos            median latency
+ * @param p99Nanos            99th-percentile latency
+ * @param p999Nanos           99.9th-percentile latency
+ * @param maxNanos            maximum latency
+ * @param meanPoolWaitNanos   mean time spent waiting for a free pool slot per acquisition
+ * @param maxPoolWaitNanos    longest single wait for a free pool slot
+ * @param firstFailure        earliest exception thrown by a unit of work in the measured window,
+ *                            or by any unit of work if it was an {@link Error}, which also stops
+ *                            its worker; {@code null} if none
+ */
+public record LoadReport(
+        int concurrency,
+        long operations,
+        long errors,
+        long elapsedNanos,
+        long p50Nanos,
+        long p99Nanos,
+        long p999Nanos,
+        long maxNanos,
+        long meanPoolWaitNanos,
+        long maxPoolWaitNanos,
+        Throwable firstFailure
+) {
+
+    /**
+     * Returns successful units of work per second over the measured window.
+     *
+     * @return throughput in operations per second
+     */
+    public double throughput() {
+        return elapsedNanos == 0L ? 0d : operations * 1_000_000_000d / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "concurrency=%d ops=%d errors=%d throughput=%.1f/s p50=%.3fms p99=%.3fms p99.9=%.3fms max=%.3fms "
+                        + "poolWaitMean=%.3fms poolWaitMax=%.3fms%s",
+                concurrency, operations, errors, throughput(),
+                p50Nanos / 1e6, p99Nanos / 1e6, p999Nanos / 1e6, maxNanos / 1e6,
+                meanPoolWaitNanos / 1e6, maxPoolWaitNanos / 1e6,
+                firstFailure == null ? "" : " firstFailure=" + firstFailure
+        );
+    }
+}
@@ -11,22 +11,44 @@ abstract sealed class AbstractConnectionScope implements ConnectionScope
         permits DefaultScope, TransactionalScope {
 
     protected final Connection connection;
-    protected final JdbcClient client;
+    protected final JdbcClientImpl client;
     protected final Thread ownerThread;
     protected volatile State state = State.ACTIVE;
+    private final ConnectionRouter.Route route;
 
-    protected AbstractConnectionScope(DataSource dataSource) {
+    protected AbstractConnectionScope(DataSource dataSource, boolean readOnly) {
         Objects.requireNonNull(dataSource, "dataSource");
         this.ownerThread = Thread.currentThread();
 
         try {
-            this.connection = dataSource.getConnection();
+            ConnectionRouter router = routerOf(dataSource);
+            if (router != null) {
+                this.route = router.route(readOnly);
+                this.connection = route.connection();
+            } else {
+                this.route = null;
+                this.connection = dataSource.getConnection();
+            }
             this.client = new JdbcClientImpl(connection);
         } catch (SQLException e) {
             throw new ConnectionScopeException("Failed to open JDBC connection", e);
         }
     }
 
+    /**
+     * Returns the {@link ConnectionRouter} that {@code dataSource} is or wraps, or {@code null} if
+     * it exposes none.
+     */
+    private static ConnectionRouter routerOf(DataSource dataSource) {
+        try {
+            return dataSource.isWrapperFor(ConnectionRouter.class) ? dataSource.unwrap(ConnectionRouter.class) : null;
+        } catch (SQLException | RuntimeException e) {
+            // Some data sources reject wrapper queries for interfaces they do not know, with a
+            // checked exception or otherwise (mocks, proxies returning null); no router then.
+            return null;
+        }
+    }
+
     @Override
     public final State getState() {
         return state;
@@ -69,6 +91,7 @@ abstract sealed class AbstractConnectionScope implements ConnectionScope
         try {
             failure = performClose();
         } finally {
+            client.releaseSpills();
             markTerminated();
         }
 
@@ -114,6 +137,10 @@ abstract sealed class AbstractConnectionScope implements ConnectionScope
             return null;
         } catch (SQLException e) {
             return e;
+        } finally {
+            if (route != null) {
+                route.release();
+            }
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,419 @@
+package io.github.llamasystems.scopejdbc;
+
+import io.github.llamasystems.scopejdbc.exception.ConnectionScopeException;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Feeds a stream of items through a block on one transactional {@link ConnectionScope},
+ * committing in chunks rather than once per item or once for the whole job.
+ *
+ * <p>A chunk is committed once it holds {@code chunkSize} items or has been open for
+ * {@code maxChunkDuration}, whichever comes first. The duration is checked after each item, so a
+ * single slow item or a slow source can stretch a chunk beyond it. After each commit, the
+ * {@link ChunkListener} receives a {@link Chunk} report. The report carries the key of the chunk's
+ * last item, which is a resumable checkpoint: every item up to and including it has either been
+ * committed or reported as failed.
+ *
+ * <p>If an item fails, the scope rolls back only the current chunk, and the chunk ends at that
+ * item. The chunk is then bisected: each half is retried in its own transaction, and failing halves
+ * are split again until every bad item is isolated. A chunk of one item needs no retry. Each bad
+ * item is passed to the {@link FailureHandler} and skipped; the rest of the chunk is committed. The
+ * block may therefore run more than once for the same item, and must not have side effects outside
+ * the transaction.
+ *
+ * <p>A failed commit is never retried. The database may have committed the transaction before the
+ * failure reached the client, and replaying its items could apply them twice. The run instead
+ * aborts with {@link ConnectionScopeException}. It also aborts when rolling back a failed item
+ * fails, because the transaction may then still hold that item's partial work. Before it aborts,
+ * any items of the current chunk already committed during bisection are reported as a chunk of
+ * their own. The listener's most recent report is therefore always the last confirmed checkpoint,
+ * and only items after it can be in doubt.
+ *
+ * <pre>{@code
+ * BulkProcessor<Row, Long> importer = BulkProcessor.of(
+ *                 (JdbcClient client, Row row) -> client.update(
+ *                         "INSERT INTO imported(id, payload) VALUES (?, ?)", row.id(), row.payload()),
+ *                 Row::id)
+ *         .withChunkSize(1_000)
+ *         .withMaxChunkDuration(Duration.ofSeconds(2))
+ *         .withChunkListener(chunk -> checkpoints.save(chunk.lastKey()))
+ *         .withFailureHandler((row, cause) -> rejected.add(row.id()));
+ *
+ * try (ConnectionScope scope = ConnectionScope.openTransactional(dataSource)) {
+ *     importer.run(scope, rows.iterator());
+ * }
+ * }</pre>
+ *
+ * <p>Instances are immutable and may be reused; every {@code with} method returns a modified copy.
+ *
+ * @param <T> item type
+ * @param <K> checkpoint key type
+ */
+public final class BulkProcessor<T, K> {
+
+    private final ItemHandler<? super T> handler;
+    private final Function<? super T, ? extends K> keyOf;
+    private final int chunkSize;
+    private final long maxChunkNanos;
+    private final ChunkListener<? super K> chunkListener;
+    private final FailureHandler<? super T> failureHandler;
+
+    private BulkProcessor(ItemHandler<? super T> handler, Function<? super T, ? extends K> keyOf, int chunkSize,
+                          long maxChunkNanos, ChunkListener<? super K> chunkListener,
+                          FailureHandler<? super T> failureHandler) {
+        this.handler = handler;
+        this.keyOf = keyOf;
+        this.chunkSize = chunkSize;
+        this.maxChunkNanos = maxChunkNanos;
+        this.chunkListener = chunkListener;
+        this.failureHandler = failureHandler;
+    }
+
+    /**
+     * Processes one item against the scope-bound client.
+     *
+     * @param <T> item type
+     */
+    @FunctionalInterface
+    public interface ItemHandler<T> {
+
+        /**
+         * Processes one item inside the current chunk's transaction.
+         *
+         * @param client scope-bound client
+         * @param item   item to process
+         */
+        void process(JdbcClient client, T item);
+    }
+
+    /**
+     * Receives a report after each chunk is committed.
+     *
+     * @param <K> checkpoint key type
+     */
+    @FunctionalInterface
+    public interface ChunkListener<K> {
+
+        /**
+         * Handles one committed chunk.
+         *
+         * @param chunk chunk report
+         */
+        void onChunk(Chunk<K> chunk);
+    }
+
+    /**
+     * Receives each item isolated as failing, after it has been rolled back and skipped.
+     *
+     * @param <T> item type
+     */
+    @FunctionalInterface
+    public interface FailureHandler<T> {
+
+        /**
+         * Handles one failed item.
+         *
+         * @param item  item that failed
+         * @param cause failure raised while processing or committing it on its own
+         */
+        void onFailure(T item, RuntimeException cause);
+    }
+
+    /**
+     * Report for one committed chunk.
+     *
+     * @param index        zero-based chunk number within the run
+     * @param items        items in the chunk, including failed ones
+     * @param failed       items isolated as failing and skipped
+     * @param elapsedNanos time from the chunk's first item to its final commit
+     * @param lastKey      key of the chunk's last item; the resumable checkpoint
+     * @param <K>          checkpoint key type
+     */
+    public record Chunk<K>(long index, int items, int failed, long elapsedNanos, K lastKey) {
+
+        /**
+         * Returns the chunk's throughput.
+         *
+         * @return items per second, including failed items
+         */
+        public double itemsPerSecond() {
+            return elapsedNanos == 0L ? 0d : items * 1_000_000_000d / elapsedNanos;
+        }
+    }
+
+    /**
+     * Totals for one {@link #run}.
+     *
+     * @param items        items consumed from the source
+     * @param failed       items isolated as failing and skipped
+     * @param chunks       chunks committed
+     * @param elapsedNanos duration of the run
+     * @param lastKey      key of the last item consumed, or {@code null} if the source was empty
+     * @param <K>          checkpoint key type
+     */
+    public record Summary<K>(long items, long failed, long chunks, long elapsedNanos, K lastKey) {
+    }
+
+    /**
+     * Creates a processor that commits every 1000 items or every second, ignores chunk reports,
+     * and skips failed items silently.
+     *
+     * @param handler block run for each item
+     * @param keyOf   extracts the checkpoint key of an item
+     * @param <T>     item type
+     * @param <K>     checkpoint key type
+     * @return processor
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    public static <T, K> BulkProcessor<T, K> of(ItemHandler<? super T> handler, Function<? super T, ? extends K> keyOf) {
+        Objects.requireNonNull(handler, "handler");
+        Objects.requireNonNull(keyOf, "keyOf");
+        return new BulkProcessor<>(handler, keyOf, 1_000, Duration.ofSeconds(1).toNanos(), chunk -> {
+        }, (item, cause) -> {
+        });
+    }
+
+    /**
+     * Returns a copy that commits after the given number of items.
+     *
+     * @param chunkSize maximum items per chunk
+     * @return updated processor
+     * @throws IllegalArgumentException if {@code chunkSize} is not positive
+     */
+    public BulkProcessor<T, K> withChunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        return new BulkProcessor<>(handler, keyOf, chunkSize, maxChunkNanos, chunkListener, failureHandler);
+    }
+
+    /**
+     * Returns a copy that commits once a chunk has been open for the given duration.
+     *
+     * @param maxChunkDuration maximum chunk duration
+     * @return updated processor
+     * @throws NullPointerException     if {@code maxChunkDuration} is {@code null}
+     * @throws IllegalArgumentException if {@code maxChunkDuration} is negative
+     */
+    public BulkProcessor<T, K> withMaxChunkDuration(Duration maxChunkDuration) {
+        Objects.requireNonNull(maxChunkDuration, "maxChunkDuration");
+        if (maxChunkDuration.isNegative()) {
+            throw new IllegalArgumentException("maxChunkDuration must not be negative");
+        }
+        return new BulkProcessor<>(handler, keyOf, chunkSize, maxChunkDuration.toNanos(), chunkListener, failureHandler);
+    }
+
+    /**
+     * Returns a copy that reports each committed chunk to the given listener.
+     *
+     * @param chunkListener chunk listener
+     * @return updated processor
+     * @throws NullPointerException if {@code chunkListener} is {@code null}
+     */
+    public BulkProcessor<T, K> withChunkListener(ChunkListener<? super K> chunkListener) {
+        Objects.requireNonNull(chunkListener, "chunkListener");
+        return new BulkProcessor<>(handler, keyOf, chunkSize, maxChunkNanos, chunkListener, failureHandler);
+    }
+
+    /**
+     * Returns a copy that reports each failed item to the given handler.
+     *
+     * @param failureHandler failure handler
+     * @return updated processor
+     * @throws NullPointerException if {@code failureHandler} is {@code null}
+     */
+    public BulkProcessor<T, K> withFailureHandler(FailureHandler<? super T> failureHandler) {
+        Objects.requireNonNull(failureHandler, "failureHandler");
+        return new BulkProcessor<>(handler, keyOf, chunkSize, maxChunkNanos, chunkListener, failureHandler);
+    }
+
+    /**
+     * Processes every remaining item of {@code items} on {@code scope}, which stays open and
+     * active afterward.
+     *
+     * @param scope transactional scope to run on, with no uncommitted work
+     * @param items source of items
+     * @return totals for the run
+     * @throws NullPointerException     if {@code scope} or {@code items} is {@code null}
+     * @throws ConnectionScopeException if {@code scope} is not transactional, is inactive, or is
+     *                                  used from the wrong thread, or if a commit or rollback
+     *                                  fails
+     */
+    public Summary<K> run(ConnectionScope scope, Iterator<? extends T> items) {
+        Objects.requireNonNull(scope, "scope");
+        Objects.requireNonNull(items, "items");
+
+        if (!(scope instanceof TransactionalScope)) {
+            throw new ConnectionScopeException("BulkProcessor requires a transactional scope");
+        }
+
+        return new Run(scope).process(items);
+    }
+
+    /**
+     * State of one {@link #run}: the open chunk and the totals so far.
+     */
+    private final class Run {
+
+        private final ConnectionScope scope;
+        private final List<T> chunk = new ArrayList<>(chunkSize);
+        private long chunkStart;
+
+        // Leading items of the chunk that are committed or reported as failed, and how many of
+        // those failed.
+        private int confirmed;
+        private int failed;
+
+        private long consumed;
+        private long failedTotal;
+        private long chunkIndex;
+        private K lastKey;
+
+        Run(ConnectionScope scope) {
+            this.scope = scope;
+        }
+
+        Summary<K> process(Iterator<? extends T> items) {
+            long runStart = System.nanoTime();
+
+            while (items.hasNext()) {
+                T item = items.next();
+                if (chunk.isEmpty()) {
+                    chunkStart = System.nanoTime();
+                }
+                chunk.add(item);
+                consumed++;
+
+                RuntimeException failure = execute(client -> handler.process(client, item));
+
+                boolean full = chunk.size() >= chunkSize || System.nanoTime() - chunkStart >= maxChunkNanos;
+                if (failure == null && !full) {
+                    continue;
+                }
+                settle(failure);
+            }
+
+            if (!chunk.isEmpty()) {
+                settle(null);
+            }
+
+            return new Summary<>(consumed, failedTotal, chunkIndex, System.nanoTime() - runStart, lastKey);
+        }
+
+        /**
+         * Commits the chunk, or bisects it if its last item failed with {@code failure}, and
+         * reports it. If that aborts the run, whatever part of the chunk is already confirmed is
+         * reported first.
+         */
+        private void settle(RuntimeException failure) {
+            try {
+                if (failure == null) {
+                    commit(chunk.size());
+                } else {
+                    bisect(0, chunk.size(), failure);
+                }
+            } catch (RuntimeException | Error e) {
+                if (confirmed > 0) {
+                    report(confirmed);
+                }
+                throw e;
+            }
+
+            report(chunk.size());
+            chunk.clear();
+            confirmed = 0;
+            failed = 0;
+        }
+
+        private void report(int items) {
+            failedTotal += failed;
+            lastKey = keyOf.apply(chunk.get(items - 1));
+            chunkListener.onChunk(new Chunk<>(chunkIndex++, items, failed, System.nanoTime() - chunkStart, lastKey));
+        }
+
+        /**
+         * Commits the open transaction, which holds the chunk's items up to {@code to}. A failed
+         * commit has an unknown outcome, so it aborts the run instead of being retried.
+         */
+        private void commit(int to) {
+            try {
+                scope.commit();
+            } catch (ConnectionScopeException e) {
+                try {
+                    scope.rollback();
+                } catch (ConnectionScopeException rollbackFailure) {
+                    e.addSuppressed(rollbackFailure);
+                }
+                throw new ConnectionScopeException(
+                        "Commit failed with an unknown outcome; the chunk is not retried", e);
+            }
+            confirmed = to;
+        }
+
+        /**
+         * Runs {@code block} in the open transaction and returns its failure, or {@code null} if
+         * it succeeded. The scope has already rolled the transaction back on failure. If that
+         * rollback failed as well, attached to the failure as a suppressed {@link SQLException},
+         * the transaction may still hold partial work that a later commit would persist, so the
+         * run aborts instead.
+         */
+        private RuntimeException execute(Consumer<JdbcClient> block) {
+            try {
+                scope.executeVoid(block);
+                return null;
+            } catch (RuntimeException e) {
+                for (Throwable suppressed : e.getSuppressed()) {
+                    if (suppressed instanceof SQLException) {
+                        throw new ConnectionScopeException("Rollback after a failed item failed; the run is aborted", e);
+                    }
+                }
+                return e;
+            }
+        }
+
+        /**
+         * Isolates the bad items among the chunk's items in {@code [from, to)}, which together
+         * failed with {@code failure}. A single item is the bad item; a larger range is split in
+         * half and each half is retried in its own transaction.
+         */
+        private void bisect(int from, int to, RuntimeException failure) {
+            if (to - from == 1) {
+                failureHandler.onFailure(chunk.get(from), failure);
+                failed++;
+                confirmed = to;
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            retry(from, middle);
+            retry(middle, to);
+        }
+
+        /**
+         * Runs the chunk's items in {@code [from, to)} in one transaction and commits them, or
+         * bisects the range if they fail.
+         */
+        private void retry(int from, int to) {
+            List<T> range = chunk.subList(from, to);
+            RuntimeException failure = execute(client -> {
+                for (T item : range) {
+                    handler.process(client, item);
+                }
+            });
+
+            if (failure == null) {
+                commit(to);
+            } else {
+                bisect(from, to, failure);
+            }
+        }
+    }
+}
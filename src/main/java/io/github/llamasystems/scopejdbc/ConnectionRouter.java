@@ -0,0 +1,46 @@
+package io.github.llamasystems.scopejdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Hook through which a {@link javax.sql.DataSource} chooses the connection for each scope based on
+ * whether the scope is read-only.
+ *
+ * <p>Scopes look the hook up with {@code isWrapperFor(ConnectionRouter.class)} and
+ * {@code unwrap(ConnectionRouter.class)} rather than by the data source's type, so routing still
+ * applies when the router is wrapped by another data source (tracing, metrics) that delegates
+ * those two methods, as the {@link java.sql.Wrapper} contract requires. A routed connection is
+ * borrowed from the router directly, not through the wrapper's {@code getConnection()}.
+ */
+@FunctionalInterface
+interface ConnectionRouter {
+
+    /**
+     * Borrows a connection for a scope. The returned route must be released exactly once, after
+     * its connection has been closed.
+     *
+     * @param readOnly whether the scope is a read-only transactional scope
+     * @return borrowed connection and its release hook
+     * @throws SQLException if no connection could be obtained
+     */
+    Route route(boolean readOnly) throws SQLException;
+
+    /**
+     * A connection borrowed through {@link #route}.
+     */
+    interface Route {
+
+        /**
+         * Returns the borrowed connection.
+         *
+         * @return connection
+         */
+        Connection connection();
+
+        /**
+         * Releases router bookkeeping for this route; called once the connection is closed.
+         */
+        void release();
+    }
+}
@@ -11,7 +11,7 @@ import java.util.function.Function;
 final class DefaultScope extends AbstractConnectionScope {
 
     DefaultScope(DataSource dataSource) {
-        super(dataSource);
+        super(dataSource, false);
 
         try {
             connection.setAutoCommit(true);
@@ -0,0 +1,417 @@
+package io.github.llamasystems.scopejdbc;
+
+import io.github.llamasystems.scopejdbc.exception.ConnectionScopeException;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Write-behind coalescer that groups small updates submitted from many threads into shared
+ * transactions, so that one commit (and one database log flush) covers many callers.
+ *
+ * <p>Callers submit statements with {@link #update}. Submitted statements are held in a bounded,
+ * lock-free queue and drained by a small, fixed set of writer threads. Each writer owns one
+ * read-write transactional {@link ConnectionScope} and executes up to {@code maxBatchSize}
+ * statements, or whatever arrived within {@code maxDelay} of the first one, before committing.
+ * A caller's future completes only after the commit covering its statement succeeds.
+ *
+ * <p>If any statement in a group fails, the whole group is rolled back and each of its statements
+ * is retried in its own transaction, so one bad statement fails only its own caller. Statements
+ * from different callers therefore must not depend on sharing a transaction, and callers must not
+ * rely on the relative order of statements submitted from different threads. If the commit itself
+ * fails, nothing is retried: the transaction may have been committed before the failure was
+ * reported, and replaying it could apply non-idempotent statements twice. Every future in the
+ * group then completes exceptionally with the commit failure. If writing a group throws an
+ * {@link Error}, every future in the group not yet completed fails with a
+ * {@link ConnectionScopeException} caused by it, and the writer continues with a fresh scope.
+ *
+ * <p>Futures are completed on the writer threads. Dependent stages attached with the non-async
+ * methods of {@link CompletableFuture}, such as {@code thenApply}, may run on a writer thread and
+ * delay every statement queued behind them; attach blocking work with the {@code *Async}
+ * variants instead. {@link #close()} waits for the writer threads and therefore must not be called
+ * from one of them.
+ *
+ * <p>Typical usage:
+ *
+ * <pre>{@code
+ * GroupCommitWriter writer = GroupCommitWriter.start(dataSource, 2, 64, Duration.ofNanos(500_000), 10_000);
+ * writer.update("INSERT INTO events(type, payload) VALUES (?, ?)", type, payload).join();
+ * ...
+ * writer.close();
+ * }</pre>
+ *
+ * <p>This class is thread-safe. {@link #close()} stops accepting new statements, waits for every
+ * already-accepted statement to be written, and closes all writer scopes. Failures to close a
+ * writer scope that could not be reported to any caller are thrown from {@link #close()}.
+ */
+public final class GroupCommitWriter implements AutoCloseable {
+
+    private final DataSource dataSource;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final int queueCapacity;
+    private final ConcurrentLinkedQueue<Request> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final ConcurrentLinkedDeque<Thread> idleWriters = new ConcurrentLinkedDeque<>();
+    private final ConcurrentLinkedDeque<Thread> collectingWriters = new ConcurrentLinkedDeque<>();
+    private final ConcurrentLinkedQueue<RuntimeException> cleanupFailures = new ConcurrentLinkedQueue<>();
+    private final List<Thread> writers;
+    private volatile boolean closed;
+
+    private GroupCommitWriter(DataSource dataSource, int writerCount, int maxBatchSize, long maxDelayNanos,
+                              int queueCapacity) {
+        this.dataSource = dataSource;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelayNanos;
+        this.queueCapacity = queueCapacity;
+        this.writers = new ArrayList<>(writerCount);
+
+        for (int i = 0; i < writerCount; i++) {
+            Thread thread = new Thread(this::runWriter, "scope-jdbc-group-commit-" + i);
+            thread.setDaemon(true);
+            writers.add(thread);
+        }
+    }
+
+    /**
+     * Starts a writer with the given grouping limits.
+     *
+     * @param dataSource    data source used to open one transactional scope per writer thread
+     * @param writerCount   number of writer threads, and therefore of connections held
+     * @param maxBatchSize  maximum number of statements committed together
+     * @param maxDelay      maximum time a writer waits for a group to fill after its first
+     *                      statement arrives; zero commits whatever is already queued without
+     *                      waiting
+     * @param queueCapacity maximum number of accepted but not yet written statements
+     * @return started writer
+     * @throws NullPointerException     if {@code dataSource} or {@code maxDelay} is {@code null}
+     * @throws IllegalArgumentException if any count is not positive or {@code maxDelay} is negative
+     */
+    public static GroupCommitWriter start(DataSource dataSource, int writerCount, int maxBatchSize,
+                                          Duration maxDelay, int queueCapacity) {
+        Objects.requireNonNull(dataSource, "dataSource");
+        Objects.requireNonNull(maxDelay, "maxDelay");
+
+        if (writerCount <= 0 || maxBatchSize <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("writerCount, maxBatchSize, and queueCapacity must be positive");
+        }
+        if (maxDelay.isNegative()) {
+            throw new IllegalArgumentException("maxDelay must not be negative");
+        }
+
+        GroupCommitWriter writer = new GroupCommitWriter(
+                dataSource, writerCount, maxBatchSize, maxDelay.toNanos(), queueCapacity
+        );
+        writer.writers.forEach(Thread::start);
+        return writer;
+    }
+
+    /**
+     * Submits an INSERT, UPDATE, or DELETE statement for grouped execution.
+     *
+     * <p>The returned future completes with the affected row count once the transaction
+     * containing the statement has committed, or exceptionally with
+     * {@link ConnectionScopeException} if the statement could not be executed and committed.
+     *
+     * @param sql    SQL statement to execute
+     * @param params positional statement parameters
+     * @return future completed after the statement is durably committed
+     * @throws NullPointerException     if {@code sql} is {@code null}
+     * @throws ConnectionScopeException if this writer is closed or its queue is full
+     */
+    public CompletableFuture<Integer> update(String sql, Object... params) {
+        Objects.requireNonNull(sql, "sql");
+
+        if (closed) {
+            throw new ConnectionScopeException("GroupCommitWriter is closed");
+        }
+
+        int current;
+        do {
+            current = pending.get();
+            if (current >= queueCapacity) {
+                throw new ConnectionScopeException("GroupCommitWriter queue is full");
+            }
+        } while (!pending.compareAndSet(current, current + 1));
+
+        Request request = new Request(sql, params, new CompletableFuture<>());
+        queue.offer(request);
+
+        // close() may have drained the queue and joined every writer between the check above and
+        // the offer; take the request back unless a writer or close() already owns it.
+        if (closed && queue.remove(request)) {
+            throw new ConnectionScopeException("GroupCommitWriter is closed");
+        }
+
+        Thread idle = idleWriters.pollFirst();
+        if (idle != null) {
+            LockSupport.unpark(idle);
+        }
+
+        // Enough statements are waiting to fill a group; don't let a collecting writer sit out the
+        // rest of maxDelay.
+        if (current + 1 >= maxBatchSize) {
+            Thread collecting = collectingWriters.pollFirst();
+            if (collecting != null) {
+                LockSupport.unpark(collecting);
+            }
+        }
+        return request.future();
+    }
+
+    /**
+     * Stops accepting statements, waits until every accepted statement has been written, and
+     * closes all writer scopes. Closing an already-closed writer is a no-op.
+     *
+     * @throws ConnectionScopeException if called from a writer thread, if interrupted while
+     *                                  waiting for writer threads, or if closing a writer scope
+     *                                  failed and no caller was left to receive the failure
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        // A writer would wait for itself forever; this happens when a dependent stage of one of
+        // the returned futures closes the writer.
+        if (writers.contains(Thread.currentThread())) {
+            throw new ConnectionScopeException("GroupCommitWriter cannot be closed from its own writer thread");
+        }
+        closed = true;
+
+        try {
+            for (Thread thread : writers) {
+                LockSupport.unpark(thread);
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectionScopeException("Interrupted while closing GroupCommitWriter", e);
+        }
+
+        // A statement accepted concurrently with close() may have been enqueued after every
+        // writer exited and before update() re-checked the flag; fail it rather than leave its
+        // future incomplete forever.
+        Request orphan;
+        while ((orphan = queue.poll()) != null) {
+            orphan.future().completeExceptionally(new ConnectionScopeException("GroupCommitWriter is closed"));
+        }
+
+        ConnectionScopeException failure = null;
+        RuntimeException cleanupFailure;
+        while ((cleanupFailure = cleanupFailures.poll()) != null) {
+            if (failure == null) {
+                failure = new ConnectionScopeException("Failed to close GroupCommitWriter cleanly", cleanupFailure);
+            } else {
+                failure.addSuppressed(cleanupFailure);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void runWriter() {
+        List<Request> group = new ArrayList<>(maxBatchSize);
+        ConnectionScope scope = null;
+
+        try {
+            while (true) {
+                Request first = queue.poll();
+                if (first == null) {
+                    if (closed) {
+                        return;
+                    }
+                    awaitWork();
+                    continue;
+                }
+
+                group.add(first);
+                collectGroup(group);
+                pending.addAndGet(-group.size());
+
+                try {
+                    scope = writeGroup(scope, group);
+                } catch (Error e) {
+                    scope = abandonGroup(scope, group, e);
+                }
+                group.clear();
+            }
+        } finally {
+            if (scope != null) {
+                try {
+                    scope.close();
+                } catch (ConnectionScopeException e) {
+                    // Every caller has already been completed; report through close() instead.
+                    cleanupFailures.add(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Parks the current writer until {@link #update} or {@link #close()} wakes it. The writer
+     * registers as idle before re-checking the queue, so a statement offered in between is either
+     * seen by the re-check or followed by an unpark of some idle writer.
+     */
+    private void awaitWork() {
+        Thread self = Thread.currentThread();
+        idleWriters.addFirst(self);
+        if (queue.isEmpty() && !closed) {
+            LockSupport.park(this);
+        }
+        idleWriters.remove(self);
+    }
+
+    private void collectGroup(List<Request> group) {
+        long deadline = System.nanoTime() + maxDelayNanos;
+
+        while (group.size() < maxBatchSize) {
+            Request next = queue.poll();
+            if (next != null) {
+                group.add(next);
+                continue;
+            }
+
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || closed) {
+                return;
+            }
+
+            // Registered before the re-check, as in awaitWork(), so that an update() filling the
+            // group either is seen here or unparks this writer.
+            Thread self = Thread.currentThread();
+            collectingWriters.addFirst(self);
+            if (queue.isEmpty() && !closed) {
+                LockSupport.parkNanos(this, remaining);
+            }
+            collectingWriters.remove(self);
+        }
+    }
+
+    /**
+     * Executes and commits {@code group} as one transaction, falling back to one transaction per
+     * statement if a statement fails. A failed commit is not retried, because its outcome is
+     * unknown. Returns the scope to use for the next group, which is {@code null} if the current
+     * one had to be discarded.
+     */
+    private ConnectionScope writeGroup(ConnectionScope scope, List<Request> group) {
+        int[] counts = new int[group.size()];
+
+        try {
+            if (scope == null) {
+                scope = ConnectionScope.openTransactional(dataSource);
+            }
+            scope.executeVoid(client -> {
+                for (int i = 0; i < group.size(); i++) {
+                    counts[i] = client.update(group.get(i).sql(), group.get(i).params());
+                }
+            });
+        } catch (RuntimeException groupFailure) {
+            if (group.size() == 1) {
+                scope = discardIfBroken(scope, groupFailure);
+                group.get(0).future().completeExceptionally(groupFailure);
+                return scope;
+            }
+
+            // Nobody receives the group failure itself; each statement reports its own.
+            scope = discardIfBroken(scope, null);
+            for (Request request : group) {
+                scope = writeSingle(scope, request);
+            }
+            return scope;
+        }
+
+        try {
+            scope.commit();
+        } catch (RuntimeException commitFailure) {
+            scope = discardIfBroken(scope, commitFailure);
+            for (Request request : group) {
+                request.future().completeExceptionally(commitFailure);
+            }
+            return scope;
+        }
+
+        for (int i = 0; i < group.size(); i++) {
+            group.get(i).future().complete(counts[i]);
+        }
+        return scope;
+    }
+
+    private ConnectionScope writeSingle(ConnectionScope scope, Request request) {
+        try {
+            if (scope == null) {
+                scope = ConnectionScope.openTransactional(dataSource);
+            }
+            int count = scope.execute(client -> client.update(request.sql(), request.params()));
+            scope.commit();
+            request.future().complete(count);
+        } catch (RuntimeException e) {
+            scope = discardIfBroken(scope, e);
+            request.future().completeExceptionally(e);
+        }
+        return scope;
+    }
+
+    /**
+     * Fails every statement in {@code group} that is not yet complete after writing the group
+     * threw {@code error}, and closes {@code scope}, whose connection state is unknown. Returns
+     * {@code null} so that the next group opens a fresh scope.
+     */
+    private ConnectionScope abandonGroup(ConnectionScope scope, List<Request> group, Error error) {
+        ConnectionScopeException failure = new ConnectionScopeException("Failed to write statement group", error);
+        if (scope != null) {
+            try {
+                scope.close();
+            } catch (ConnectionScopeException closeFailure) {
+                failure.addSuppressed(closeFailure);
+            }
+        }
+
+        for (Request request : group) {
+            request.future().completeExceptionally(failure);
+        }
+        return null;
+    }
+
+    /**
+     * Rolls back {@code scope} after a failure. If the rollback fails the connection is in an
+     * unknown state, so the scope is closed and {@code null} is returned to force a fresh one.
+     * The rollback failure, with any close failure suppressed on it, is attached as suppressed to
+     * {@code reported}, or queued for {@link #close()} if {@code reported} is {@code null}.
+     */
+    private ConnectionScope discardIfBroken(ConnectionScope scope, RuntimeException reported) {
+        if (scope == null) {
+            return null;
+        }
+
+        try {
+            scope.rollback();
+            return scope;
+        } catch (ConnectionScopeException rollbackFailure) {
+            try {
+                scope.close();
+            } catch (ConnectionScopeException closeFailure) {
+                rollbackFailure.addSuppressed(closeFailure);
+            }
+
+            if (reported != null) {
+                reported.addSuppressed(rollbackFailure);
+            } else {
+                cleanupFailures.add(rollbackFailure);
+            }
+            return null;
+        }
+    }
+
+    private record Request(String sql, Object[] params, CompletableFuture<Integer> future) {
+    }
+}
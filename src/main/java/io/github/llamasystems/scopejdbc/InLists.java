@@ -0,0 +1,192 @@
+package io.github.llamasystems.scopejdbc;
+
+import io.github.llamasystems.scopejdbc.exception.ConnectionScopeException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Expands a single collection-valued statement parameter into a bucketed IN-list.
+ *
+ * <p>Each chunk of values is padded up to the next power of two by repeating its last value, so
+ * an arbitrary collection produces at most {@code log2(MAX_BUCKET_SIZE) + 1} distinct SQL strings
+ * for a given statement. Collections larger than {@link #MAX_BUCKET_SIZE} are split into
+ * full-size chunks, which keeps every statement well under the bind-parameter limits of common
+ * drivers (for example Oracle's 1000-element IN-list limit and SQL Server's 2100 parameters).
+ */
+final class InLists {
+
+    /**
+     * Largest IN-list bucket; also the chunk size used for oversized collections.
+     */
+    static final int MAX_BUCKET_SIZE = 512;
+
+    /**
+     * Matches SQL text ending in {@code NOT IN (}, i.e. a negated IN-list whose result cannot be
+     * assembled from several chunks.
+     */
+    private static final Pattern NOT_IN_PREFIX = Pattern.compile("(?is).*\\bNOT\\s+IN\\s*\\(\\s*");
+
+    private InLists() {
+    }
+
+    /**
+     * One executable statement produced by {@link #expand}.
+     *
+     * @param sql    SQL text with the collection placeholder expanded
+     * @param params positional parameters matching {@code sql}
+     */
+    record Chunk(String sql, Object[] params) {
+    }
+
+    /**
+     * Expands the single {@link Collection} element of {@code params} into one or more chunks.
+     *
+     * @param sql    SQL text containing one placeholder per element of {@code params}
+     * @param params positional parameters; exactly one must be a {@link Collection}
+     * @return chunks to execute in order; empty if the collection is empty
+     * @throws ConnectionScopeException if {@code params} does not contain exactly one collection,
+     *                                  the placeholder count does not match {@code params}, or a
+     *                                  {@code NOT IN} list would need more than one chunk
+     */
+    static List<Chunk> expand(String sql, Object[] params) {
+        Object[] actualParams = params == null ? new Object[0] : params;
+
+        int collectionIndex = -1;
+        for (int i = 0; i < actualParams.length; i++) {
+            if (actualParams[i] instanceof Collection<?>) {
+                if (collectionIndex >= 0) {
+                    throw new ConnectionScopeException("Expected exactly one collection parameter but found several");
+                }
+                collectionIndex = i;
+            }
+        }
+
+        if (collectionIndex < 0) {
+            throw new ConnectionScopeException("Expected exactly one collection parameter but found none");
+        }
+
+        List<Integer> placeholders = placeholderPositions(sql);
+        if (placeholders.size() != actualParams.length) {
+            throw new ConnectionScopeException(
+                    "SQL declares " + placeholders.size() + " placeholders but " + actualParams.length
+                            + " parameters were supplied"
+            );
+        }
+
+        // Duplicates cannot change an IN predicate's result, but across chunks they would
+        // return the same row twice.
+        List<Object> values = new ArrayList<>(new LinkedHashSet<>((Collection<?>) actualParams[collectionIndex]));
+        if (values.isEmpty()) {
+            return List.of();
+        }
+
+        int placeholderOffset = placeholders.get(collectionIndex);
+        String prefix = sql.substring(0, placeholderOffset);
+        String suffix = sql.substring(placeholderOffset + 1);
+
+        if (values.size() > MAX_BUCKET_SIZE && NOT_IN_PREFIX.matcher(prefix).matches()) {
+            throw new ConnectionScopeException(
+                    "NOT IN list of " + values.size() + " values exceeds " + MAX_BUCKET_SIZE
+                            + " and cannot be split across statements"
+            );
+        }
+
+        List<Chunk> chunks = new ArrayList<>((values.size() + MAX_BUCKET_SIZE - 1) / MAX_BUCKET_SIZE);
+        for (int from = 0; from < values.size(); from += MAX_BUCKET_SIZE) {
+            int to = Math.min(from + MAX_BUCKET_SIZE, values.size());
+            int bucket = bucketSize(to - from);
+
+            Object[] chunkParams = new Object[actualParams.length - 1 + bucket];
+            System.arraycopy(actualParams, 0, chunkParams, 0, collectionIndex);
+            for (int i = 0; i < bucket; i++) {
+                chunkParams[collectionIndex + i] = values.get(Math.min(from + i, to - 1));
+            }
+            System.arraycopy(
+                    actualParams, collectionIndex + 1,
+                    chunkParams, collectionIndex + bucket,
+                    actualParams.length - collectionIndex - 1
+            );
+
+            chunks.add(new Chunk(prefix + placeholders(bucket) + suffix, chunkParams));
+        }
+
+        return chunks;
+    }
+
+    /**
+     * Returns the smallest power of two greater than or equal to {@code size}, capped at
+     * {@link #MAX_BUCKET_SIZE}.
+     *
+     * @param size number of values, at least one
+     * @return bucket size
+     */
+    static int bucketSize(int size) {
+        int bucket = Integer.highestOneBit(size);
+        if (bucket < size) {
+            bucket <<= 1;
+        }
+        return Math.min(bucket, MAX_BUCKET_SIZE);
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder builder = new StringBuilder(count * 3);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append('?');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the offsets of positional {@code ?} placeholders, ignoring any that appear inside
+     * quoted literals, quoted identifiers, or SQL comments.
+     */
+    private static List<Integer> placeholderPositions(String sql) {
+        List<Integer> positions = new ArrayList<>();
+        int length = sql.length();
+        int i = 0;
+
+        while (i < length) {
+            char c = sql.charAt(i);
+
+            if (c == '\'' || c == '"') {
+                i = skipQuoted(sql, i, c);
+            } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? length : end + 1;
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+            } else {
+                if (c == '?') {
+                    positions.add(i);
+                }
+                i++;
+            }
+        }
+
+        return positions;
+    }
+
+    private static int skipQuoted(String sql, int start, char quote) {
+        int i = start + 1;
+        while (i < sql.length()) {
+            if (sql.charAt(i) == quote) {
+                // A doubled quote is an escaped quote inside the literal.
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return sql.length();
+    }
+}
@@ -1,6 +1,8 @@
 package io.github.llamasystems.scopejdbc;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Low-level JDBC operations bound to the single physical connection owned by a
@@ -25,6 +27,88 @@ public interface JdbcClient {
      */
     <T> List<T> query(String sql, RowMapper<T> mapper, Object... params);
 
+    /**
+     * Executes a query whose single {@link java.util.Collection} parameter is expanded into an
+     * IN-list, for example {@code SELECT * FROM users WHERE id IN (?) AND tenant_id = ?}.
+     *
+     * <p>Exactly one element of {@code params} must be a collection; its placeholder is replaced
+     * by as many placeholders as the collection needs, rounded up to the next power of two by
+     * repeating the last value. This keeps the number of distinct SQL strings, and therefore the
+     * number of driver and database plan-cache entries, to a handful per statement. Duplicate
+     * values are removed before binding. An empty collection returns an empty list without a
+     * database round trip.
+     *
+     * <p>Collections of more than 512 distinct values are split into several statements whose
+     * results are concatenated. That is only correct when the collection feeds a plain
+     * row-returning {@code col IN (?)} filter. Across statements, {@code ORDER BY} applies per
+     * statement only, {@code LIMIT}/{@code FETCH FIRST} limits each statement separately,
+     * {@code COUNT}, {@code GROUP BY}, and other aggregates yield one partial result per statement,
+     * and {@code DISTINCT} does not remove duplicates between statements. A {@code NOT IN (?)}
+     * list that would need splitting is rejected.
+     *
+     * @param sql    SQL statement to execute
+     * @param mapper row mapper applied to each returned row
+     * @param params positional statement parameters, exactly one of which is a collection
+     * @param <T>    mapped row type
+     * @return rows from every executed statement; never {@code null}
+     * @throws NullPointerException                                                if {@code sql} or {@code mapper} is {@code null}
+     * @throws io.github.llamasystems.scopejdbc.exception.ConnectionScopeException if query execution
+     *                                                                             fails, {@code params} does not contain exactly one collection,
+     *                                                                             or a {@code NOT IN} list exceeds 512 values
+     */
+    default <T> List<T> queryIn(String sql, RowMapper<T> mapper, Object... params) {
+        Objects.requireNonNull(sql, "sql");
+        Objects.requireNonNull(mapper, "mapper");
+
+        List<T> rows = new ArrayList<>();
+        for (InLists.Chunk chunk : InLists.expand(sql, params)) {
+            rows.addAll(query(chunk.sql(), mapper, chunk.params()));
+        }
+        return rows;
+    }
+
+
+    /**
+     * Executes a query and maps each returned row, keeping at most roughly
+     * {@code heapBudgetBytes} of rows on the heap.
+     *
+     * <p>The rows' heap footprint is estimated from their encoded size under {@code codec}. To
+     * keep small results cheap, only a sample of the rows held on the heap is encoded: the first
+     * 16, then every 32nd. While the estimate stays within the budget, the rows are returned as
+     * an unmodifiable list. Once the estimate exceeds the budget, all rows collected so far, and
+     * every row after them, are encoded and written to a temporary file. The result is then a
+     * read-only, random-access list backed by a memory-mapped view of that file, and each
+     * {@code get} decodes a fresh row from it. Either way the result is read-only, unlike the
+     * mutable list returned by {@link #query}. Because the estimate is sampled, a few unusually
+     * large rows that fall between samples can push the heap past the budget.
+     *
+     * <p>The temporary file is deleted when the owning {@link ConnectionScope} closes. After that,
+     * reading a spilled result throws
+     * {@link io.github.llamasystems.scopejdbc.exception.ConnectionScopeException}, so copy out
+     * whatever must outlive the scope.
+     *
+     * <p>Spilling needs access to the owning scope's lifecycle, so only the clients handed out by
+     * {@link ConnectionScope} implement this method. The default implementation, inherited by
+     * other {@code JdbcClient} implementations, throws {@link UnsupportedOperationException}.
+     *
+     * @param sql             SQL statement to execute
+     * @param mapper          row mapper applied to each returned row
+     * @param codec           codec used to encode rows and to read back spilled rows
+     * @param heapBudgetBytes encoded bytes kept on the heap before spilling to disk
+     * @param params          positional statement parameters
+     * @param <T>             mapped row type
+     * @return rows in encounter order; never {@code null}
+     * @throws NullPointerException                                                if {@code sql}, {@code mapper}, or {@code codec} is {@code null}
+     * @throws IllegalArgumentException                                            if {@code heapBudgetBytes} is negative
+     * @throws io.github.llamasystems.scopejdbc.exception.ConnectionScopeException if query execution,
+     *                                                                             encoding, or spill-file I/O fails
+     * @throws UnsupportedOperationException                                       if this client is not bound to a
+     *                                                                             {@link ConnectionScope}
+     */
+    default <T> List<T> queryBounded(String sql, RowMapper<T> mapper, RowCodec<T> codec, long heapBudgetBytes,
+                                     Object... params) {
+        throw new UnsupportedOperationException("queryBounded is only supported by scope-bound clients");
+    }
 
     /**
      * Executes a query that must return exactly one row and maps that row to a single object.
@@ -10,10 +10,13 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
 
 final class JdbcClientImpl implements JdbcClient {
 
     private final Connection connection;
+    private final List<SpilledList<?>> spills = new ArrayList<>();
 
     JdbcClientImpl(Connection connection) {
         this.connection = connection;
@@ -24,7 +27,7 @@ final class JdbcClientImpl implements JdbcClient {
         Objects.requireNonNull(sql, "sql");
         Objects.requireNonNull(mapper, "mapper");
 
-        return executeQuery(sql, params, "Failed to execute query", resultSet -> {
+        return executeQuery(sql, params, "Failed to execute query", List::size, resultSet -> {
             List<T> rows = new ArrayList<>();
             while (resultSet.next()) {
                 rows.add(mapper.map(resultSet));
@@ -33,12 +36,48 @@ final class JdbcClientImpl implements JdbcClient {
         });
     }
 
+    @Override
+    public <T> List<T> queryBounded(
+            String sql,
+            RowMapper<T> mapper,
+            RowCodec<T> codec,
+            long heapBudgetBytes,
+            Object... params
+    ) {
+        Objects.requireNonNull(sql, "sql");
+        Objects.requireNonNull(mapper, "mapper");
+        Objects.requireNonNull(codec, "codec");
+
+        if (heapBudgetBytes < 0) {
+            throw new IllegalArgumentException("heapBudgetBytes must not be negative");
+        }
+
+        SpilledList.Collector<T> collector = new SpilledList.Collector<>(codec, heapBudgetBytes);
+        List<T> rows;
+        try {
+            rows = executeQuery(sql, params, "Failed to execute bounded query", List::size, resultSet -> {
+                while (resultSet.next()) {
+                    collector.add(mapper.map(resultSet));
+                }
+                return collector.finish();
+            });
+        } catch (RuntimeException | Error e) {
+            collector.abort();
+            throw e;
+        }
+
+        if (rows instanceof SpilledList<T> spilled) {
+            spills.add(spilled);
+        }
+        return rows;
+    }
+
     @Override
     public <T> T queryForObject(String sql, RowMapper<T> mapper, Object... params) {
         Objects.requireNonNull(sql, "sql");
         Objects.requireNonNull(mapper, "mapper");
 
-        return executeQuery(sql, params, "Failed to execute single-result query", resultSet -> {
+        return executeQuery(sql, params, "Failed to execute single-result query", value -> 1, resultSet -> {
             if (!resultSet.next()) {
                 throw new ConnectionScopeException("Expected exactly one row but query returned no rows");
             }
@@ -57,17 +96,28 @@ final class JdbcClientImpl implements JdbcClient {
     public boolean exists(String sql, Object... params) {
         Objects.requireNonNull(sql, "sql");
 
-        return executeQuery(sql, params, "Failed to execute existence query", ResultSet::next);
+        return executeQuery(sql, params, "Failed to execute existence query", found -> found ? 1 : 0, ResultSet::next);
     }
 
     @Override
     public int update(String sql, Object... params) {
         Objects.requireNonNull(sql, "sql");
 
+        SqlStatistics statistics = SqlStatistics.active();
+        long start = statistics == null ? 0L : System.nanoTime();
+        boolean succeeded = false;
+
         try (PreparedStatement statement = prepareStatement(connection, sql, false, params)) {
-            return statement.executeUpdate();
+            int affected = statement.executeUpdate();
+            if (statistics != null) {
+                statistics.record(sql, System.nanoTime() - start, 0L, affected);
+            }
+            succeeded = true;
+            return affected;
         } catch (SQLException e) {
             throw new ConnectionScopeException("Failed to execute update", e);
+        } finally {
+            recordFailure(statistics, sql, succeeded);
         }
     }
 
@@ -75,27 +125,110 @@ final class JdbcClientImpl implements JdbcClient {
     public long updateReturningKey(String sql, Object... params) {
         Objects.requireNonNull(sql, "sql");
 
+        SqlStatistics statistics = SqlStatistics.active();
+        long start = statistics == null ? 0L : System.nanoTime();
+        boolean succeeded = false;
+
         try (PreparedStatement statement = prepareStatement(connection, sql, true, params)) {
             int affected = statement.executeUpdate();
+            long result = affected;
 
             try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
-                    return generatedKeys.getLong(1);
+                    result = generatedKeys.getLong(1);
                 }
             }
 
-            return affected;
+            if (statistics != null) {
+                statistics.record(sql, System.nanoTime() - start, 0L, affected);
+            }
+            succeeded = true;
+            return result;
         } catch (SQLException e) {
             throw new ConnectionScopeException("Failed to execute update returning key", e);
+        } finally {
+            recordFailure(statistics, sql, succeeded);
+        }
+    }
+
+    /**
+     * Streams the rows of a query into {@code sink} without materializing them, stopping early if
+     * the sink returns {@code false}. Used by {@link PartitionedScan}; the fetch size hint lets
+     * drivers that support cursors avoid buffering the whole result set.
+     */
+    <T> void forEach(String sql, int fetchSize, RowMapper<T> mapper, Predicate<T> sink, Object... params) {
+        SqlStatistics statistics = SqlStatistics.active();
+        long start = statistics == null ? 0L : System.nanoTime();
+        boolean succeeded = false;
+
+        try (PreparedStatement statement = prepareStatement(connection, sql, false, params)) {
+            statement.setFetchSize(fetchSize);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                long executed = statistics == null ? 0L : System.nanoTime();
+                long rows = 0L;
+                while (resultSet.next()) {
+                    rows++;
+                    if (!sink.test(mapper.map(resultSet))) {
+                        break;
+                    }
+                }
+
+                // Mapping time here includes time the sink spent waiting on its consumer.
+                if (statistics != null) {
+                    statistics.record(sql, executed - start, System.nanoTime() - executed, rows);
+                }
+                succeeded = true;
+            }
+        } catch (SQLException e) {
+            throw new ConnectionScopeException("Failed to execute streaming query", e);
+        } finally {
+            recordFailure(statistics, sql, succeeded);
         }
     }
 
-    private <T> T executeQuery(String sql, Object[] params, String failureMessage, ResultSetHandler<T> handler) {
+    /**
+     * Deletes the spill files of every {@link #queryBounded} result produced by this client.
+     * Called once by the owning scope when it closes.
+     */
+    void releaseSpills() {
+        for (SpilledList<?> spill : spills) {
+            spill.release();
+        }
+        spills.clear();
+    }
+
+    private <T> T executeQuery(
+            String sql,
+            Object[] params,
+            String failureMessage,
+            ToIntFunction<? super T> rowCount,
+            ResultSetHandler<T> handler
+    ) {
+        SqlStatistics statistics = SqlStatistics.active();
+        long start = statistics == null ? 0L : System.nanoTime();
+        boolean succeeded = false;
+
         try (PreparedStatement statement = prepareStatement(connection, sql, false, params);
              ResultSet resultSet = statement.executeQuery()) {
-            return handler.handle(resultSet);
+            long executed = statistics == null ? 0L : System.nanoTime();
+            T result = handler.handle(resultSet);
+
+            if (statistics != null) {
+                statistics.record(sql, executed - start, System.nanoTime() - executed, rowCount.applyAsInt(result));
+            }
+            succeeded = true;
+            return result;
         } catch (SQLException e) {
             throw new ConnectionScopeException(failureMessage, e);
+        } finally {
+            recordFailure(statistics, sql, succeeded);
+        }
+    }
+
+    private static void recordFailure(SqlStatistics statistics, String sql, boolean succeeded) {
+        if (!succeeded && statistics != null) {
+            statistics.recordError(sql);
         }
     }
 
@@ -0,0 +1,76 @@
+package io.github.llamasystems.scopejdbc;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free log-linear histogram of nanosecond durations.
+ *
+ * <p>Each power-of-two range is split into {@value #SUB_BUCKETS} linear sub-buckets, so a
+ * reported percentile is within 12.5% of the recorded value across the full {@code long} range
+ * with a fixed footprint of a few kilobytes. Recording is a single atomic increment; percentiles
+ * are computed from a non-atomic scan of the buckets and are therefore approximate under
+ * concurrent recording.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    void record(long nanos) {
+        counts.incrementAndGet(indexOf(Math.max(nanos, 0L)));
+    }
+
+    /**
+     * Returns the approximate value at {@code percentile}, or {@code 0} if nothing was recorded.
+     *
+     * @param percentile percentile in {@code (0, 1]}
+     * @return upper bound of the bucket containing that percentile, in nanoseconds
+     */
+    long percentile(double percentile) {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0L;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+
+        if (total == 0L) {
+            return 0L;
+        }
+
+        long target = Math.max(1L, (long) Math.ceil(percentile * total));
+        long seen = 0L;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(BUCKET_COUNT - 1);
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        long lower = (SUB_BUCKETS + subBucket) * width;
+        return lower + (width - 1);
+    }
+}
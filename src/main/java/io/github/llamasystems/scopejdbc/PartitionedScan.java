@@ -0,0 +1,375 @@
+package io.github.llamasystems.scopejdbc;
+
+import io.github.llamasystems.scopejdbc.exception.ConnectionScopeException;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Parallel scan of a key range, split into sub-ranges that each run on their own read-only
+ * {@link ConnectionScope}.
+ *
+ * <p>The query must declare the partition bounds as its first two placeholders: the inclusive
+ * lower bound followed by the exclusive upper bound, for example
+ * {@code SELECT ... FROM orders WHERE id >= ? AND id < ? AND status = ?}. Any further
+ * {@code params} are bound after the bounds. The range {@code [fromInclusive, toExclusive)} is
+ * split into at most {@code parallelism} contiguous, equally sized sub-ranges, and each sub-range
+ * runs on its own thread with its own scope opened via
+ * {@link ConnectionScope#openTransactional(DataSource, Mode)} in {@link Mode#READ_ONLY}. A scan
+ * therefore holds up to {@code parallelism} connections at once, and, combined with
+ * {@link ReplicaRoutingDataSource}, runs on replicas.
+ *
+ * <p>Each partition sees a consistent snapshot of its own sub-range only; partitions are separate
+ * transactions and do not share a snapshot.
+ */
+public final class PartitionedScan {
+
+    /**
+     * JDBC fetch size hint used by partition queries, so that cursor-capable drivers stream rows
+     * rather than buffering each partition's full result.
+     */
+    static final int FETCH_SIZE = 1_000;
+
+    /**
+     * Rows buffered per partition in {@link #stream} before partition threads block.
+     */
+    static final int BUFFER_PER_PARTITION = 256;
+
+    private static final long OFFER_TIMEOUT_MILLIS = 10;
+
+    /**
+     * Wake-up marker a partition offers when it ends, so a waiting consumer re-checks completion
+     * and failures without waiting out its poll timeout. Completion itself is tracked by the
+     * scan's counter, never by this marker, which may be dropped when the buffer is full.
+     */
+    private static final Object PARTITION_DONE = new Object();
+
+    private PartitionedScan() {
+    }
+
+    /**
+     * Receives rows from one partition of a {@link #forEachPartition} scan.
+     *
+     * @param <T> mapped row type
+     */
+    @FunctionalInterface
+    public interface PartitionCallback<T> {
+
+        /**
+         * Handles one row. Invoked on the partition's own thread; calls for the same partition
+         * are sequential, calls for different partitions are concurrent.
+         *
+         * @param partition zero-based partition index, in range order
+         * @param row       mapped row
+         */
+        void accept(int partition, T row);
+    }
+
+    /**
+     * Scans the range in parallel and returns every row as one unordered stream.
+     *
+     * <p>Partition threads start immediately and block once {@link #BUFFER_PER_PARTITION} rows
+     * per partition are waiting to be consumed, so a slow consumer holds back the scan rather
+     * than growing the heap. The returned stream must be closed, typically with
+     * try-with-resources: closing it stops all partitions and waits until every partition scope
+     * has been closed. If any partition fails, the stream throws {@link ConnectionScopeException}
+     * from its terminal operation and the remaining partitions are cancelled.
+     *
+     * @param dataSource    data source used to open one read-only scope per partition
+     * @param sql           query whose first two placeholders are the partition bounds
+     * @param mapper        row mapper applied to each returned row
+     * @param fromInclusive lower bound of the partition-key range
+     * @param toExclusive   upper bound of the partition-key range
+     * @param parallelism   maximum number of partitions, threads, and connections
+     * @param params        positional parameters bound after the partition bounds
+     * @param <T>           mapped row type
+     * @return unordered stream of all rows in the range
+     * @throws NullPointerException     if {@code dataSource}, {@code sql}, or {@code mapper} is
+     *                                  {@code null}
+     * @throws IllegalArgumentException if the range is empty or too large to represent, or
+     *                                  {@code parallelism} is not positive
+     */
+    public static <T> Stream<T> stream(DataSource dataSource, String sql, RowMapper<T> mapper,
+                                       long fromInclusive, long toExclusive, int parallelism, Object... params) {
+        Scan<T> scan = new Scan<>(dataSource, sql, mapper, split(fromInclusive, toExclusive, parallelism), params);
+        BlockingQueue<Object> buffer = new ArrayBlockingQueue<>(scan.partitions() * BUFFER_PER_PARTITION);
+
+        scan.start((partition, row) -> offer(scan, buffer, row), partition -> buffer.offer(PARTITION_DONE));
+
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, 0) {
+            @Override
+            @SuppressWarnings("unchecked")
+            public boolean tryAdvance(Consumer<? super T> action) {
+                while (true) {
+                    scan.throwIfFailed();
+
+                    // Partitions enqueue their rows before counting themselves finished, so once
+                    // all have finished an empty buffer means the scan is exhausted.
+                    boolean finished = scan.isFinished();
+                    Object item;
+                    try {
+                        item = finished ? buffer.poll() : buffer.poll(OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        scan.cancel();
+                        throw new ConnectionScopeException("Interrupted while waiting for partitioned scan", e);
+                    }
+
+                    if (item == null) {
+                        if (finished) {
+                            scan.throwIfFailed();
+                            return false;
+                        }
+                        continue;
+                    }
+                    if (item != PARTITION_DONE) {
+                        action.accept((T) item);
+                        return true;
+                    }
+                }
+            }
+        };
+
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            scan.cancel();
+            buffer.clear();
+            scan.awaitTermination();
+        });
+    }
+
+    /**
+     * Scans the range in parallel, passing each row to {@code callback} on its partition's
+     * thread, and returns once every partition has finished.
+     *
+     * <p>Because the callback runs inline on the partition thread, a slow callback slows only its
+     * own partition's fetch. If any partition or callback fails, the remaining partitions are
+     * cancelled, every scope is closed, and the first failure is thrown with later ones attached
+     * as suppressed exceptions.
+     *
+     * @param dataSource    data source used to open one read-only scope per partition
+     * @param sql           query whose first two placeholders are the partition bounds
+     * @param mapper        row mapper applied to each returned row
+     * @param fromInclusive lower bound of the partition-key range
+     * @param toExclusive   upper bound of the partition-key range
+     * @param parallelism   maximum number of partitions, threads, and connections
+     * @param callback      receives each row with its partition index
+     * @param params        positional parameters bound after the partition bounds
+     * @param <T>           mapped row type
+     * @throws NullPointerException     if {@code dataSource}, {@code sql}, {@code mapper}, or
+     *                                  {@code callback} is {@code null}
+     * @throws IllegalArgumentException if the range is empty or too large to represent, or
+     *                                  {@code parallelism} is not positive
+     * @throws ConnectionScopeException if any partition fails, or the calling thread is
+     *                                  interrupted while waiting
+     */
+    public static <T> void forEachPartition(DataSource dataSource, String sql, RowMapper<T> mapper,
+                                            long fromInclusive, long toExclusive, int parallelism,
+                                            PartitionCallback<T> callback, Object... params) {
+        Objects.requireNonNull(callback, "callback");
+
+        Scan<T> scan = new Scan<>(dataSource, sql, mapper, split(fromInclusive, toExclusive, parallelism), params);
+        scan.start((partition, row) -> {
+            callback.accept(partition, row);
+            return true;
+        }, partition -> {
+        });
+
+        try {
+            scan.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            scan.cancel();
+            scan.awaitTermination();
+            throw new ConnectionScopeException("Interrupted while waiting for partitioned scan", e);
+        }
+        scan.throwIfFailed();
+    }
+
+    /**
+     * Splits {@code [fromInclusive, toExclusive)} into at most {@code parallelism} contiguous
+     * sub-ranges whose sizes differ by at most one. Each element is {@code {from, to}}.
+     */
+    static long[][] split(long fromInclusive, long toExclusive, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        if (fromInclusive >= toExclusive) {
+            throw new IllegalArgumentException("Partition range must not be empty");
+        }
+
+        long span;
+        try {
+            span = Math.subtractExact(toExclusive, fromInclusive);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Partition range is too large", e);
+        }
+
+        int count = (int) Math.min(parallelism, span);
+        long base = span / count;
+        long remainder = span % count;
+
+        long[][] ranges = new long[count][];
+        long lower = fromInclusive;
+        for (int i = 0; i < count; i++) {
+            long upper = lower + base + (i < remainder ? 1 : 0);
+            ranges[i] = new long[]{lower, upper};
+            lower = upper;
+        }
+        return ranges;
+    }
+
+    private static boolean offer(Scan<?> scan, BlockingQueue<Object> buffer, Object item) {
+        try {
+            while (!scan.isCancelled()) {
+                if (buffer.offer(item, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Shared state of one running scan: the partition threads, the cancellation flag, and every
+     * partition failure.
+     */
+    private static final class Scan<T> {
+
+        private final DataSource dataSource;
+        private final String sql;
+        private final RowMapper<T> mapper;
+        private final long[][] ranges;
+        private final Object[] params;
+        private final List<Thread> threads;
+        private final ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger finished = new AtomicInteger();
+        private volatile boolean cancelled;
+
+        Scan(DataSource dataSource, String sql, RowMapper<T> mapper, long[][] ranges, Object[] params) {
+            this.dataSource = Objects.requireNonNull(dataSource, "dataSource");
+            this.sql = Objects.requireNonNull(sql, "sql");
+            this.mapper = Objects.requireNonNull(mapper, "mapper");
+            this.ranges = ranges;
+            this.params = params == null ? new Object[0] : params;
+            this.threads = new ArrayList<>(ranges.length);
+        }
+
+        int partitions() {
+            return ranges.length;
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Returns whether every partition thread has ended, successfully or not.
+         */
+        boolean isFinished() {
+            return finished.get() == ranges.length;
+        }
+
+        /**
+         * Starts one thread per partition. {@code sink} returns {@code false} to stop the
+         * partition; {@code onDone} is always invoked when a partition ends, after its scope is
+         * closed.
+         */
+        void start(RowSink<T> sink, Consumer<Integer> onDone) {
+            for (int i = 0; i < ranges.length; i++) {
+                int partition = i;
+                Thread thread = new Thread(() -> {
+                    try {
+                        runPartition(partition, sink);
+                    } catch (RuntimeException | Error e) {
+                        // Reported to the caller by throwIfFailed(), Errors included, so the scan
+                        // never ends with a silently incomplete result.
+                        failures.add(e);
+                        cancelled = true;
+                    } finally {
+                        finished.incrementAndGet();
+                        onDone.accept(partition);
+                    }
+                }, "scope-jdbc-scan-" + partition);
+                thread.setDaemon(true);
+                threads.add(thread);
+            }
+            threads.forEach(Thread::start);
+        }
+
+        private void runPartition(int partition, RowSink<T> sink) {
+            Object[] boundParams = new Object[params.length + 2];
+            boundParams[0] = ranges[partition][0];
+            boundParams[1] = ranges[partition][1];
+            System.arraycopy(params, 0, boundParams, 2, params.length);
+
+            Predicate<T> rowSink = row -> !cancelled && sink.accept(partition, row);
+
+            try (ConnectionScope scope = ConnectionScope.openTransactional(dataSource, Mode.READ_ONLY)) {
+                scope.executeVoid(client -> ((JdbcClientImpl) client).forEach(sql, FETCH_SIZE, mapper, rowSink, boundParams));
+                scope.commit();
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+
+        void join() throws InterruptedException {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+
+        /**
+         * Waits for every partition thread to exit, preserving the caller's interrupt status.
+         */
+        void awaitTermination() {
+            boolean interrupted = false;
+            for (Thread thread : threads) {
+                while (thread.isAlive()) {
+                    try {
+                        thread.join();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void throwIfFailed() {
+            Throwable first = failures.peek();
+            if (first == null) {
+                return;
+            }
+
+            cancel();
+            ConnectionScopeException failure = new ConnectionScopeException("Partitioned scan failed", first);
+            failures.stream().skip(1).forEach(failure::addSuppressed);
+            throw failure;
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowSink<T> {
+        boolean accept(int partition, T row);
+    }
+}
@@ -0,0 +1,305 @@
+package io.github.llamasystems.scopejdbc;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * {@link DataSource} that routes read-only {@link ConnectionScope}s to replicas and everything else
+ * to a primary.
+ *
+ * <p>Scopes opened with {@link ConnectionScope#openTransactional(DataSource, Mode)} and
+ * {@link Mode#READ_ONLY} borrow their connection from one of the replica data sources, chosen
+ * according to the configured {@link Balancing} strategy. Read-write transactional scopes,
+ * non-transactional scopes, and direct calls to {@link #getConnection()} always use the primary.
+ *
+ * <p>A replica whose {@code getConnection()} call fails is ejected for the configured ejection
+ * duration and the next candidate is tried. Once its ejection expires, the replica is eligible
+ * again; if it still fails it is ejected again. When no replica is available, read-only scopes fall
+ * back to the primary. Only connection-acquisition failures are used as a health signal; failures
+ * of statements running on an already-borrowed connection do not eject a replica.
+ *
+ * <p>Typical usage:
+ *
+ * <pre>{@code
+ * DataSource routing = ReplicaRoutingDataSource.of(
+ *         primary, List.of(replicaA, replicaB), ReplicaRoutingDataSource.Balancing.LEAST_OUTSTANDING,
+ *         Duration.ofSeconds(30)
+ * );
+ *
+ * try (ConnectionScope scope = ConnectionScope.openTransactional(routing, Mode.READ_ONLY)) {
+ *     ... // runs on a replica
+ * }
+ * }</pre>
+ *
+ * <p>Scopes find the router through {@code unwrap}, so it keeps routing when wrapped by another
+ * data source, such as a tracing or metrics proxy, provided that wrapper delegates
+ * {@code isWrapperFor} and {@code unwrap} to it. A wrapper that does not delegate them hides the
+ * router, and every scope then uses the wrapper's {@code getConnection()}, i.e. the primary.
+ * Routed connections are borrowed from the router directly and do not pass through the wrapper.
+ *
+ * <p>This class is thread-safe.
+ */
+public final class ReplicaRoutingDataSource implements DataSource {
+
+    /**
+     * Strategy used to pick a replica for a read-only scope.
+     */
+    public enum Balancing {
+        /**
+         * Picks the healthy replica with the fewest scopes currently open against it.
+         */
+        LEAST_OUTSTANDING,
+
+        /**
+         * Cycles through the healthy replicas in order.
+         */
+        ROUND_ROBIN
+    }
+
+    private final DataSource primary;
+    private final Replica[] replicas;
+    private final Balancing balancing;
+    private final long ejectionNanos;
+    private final AtomicInteger cursor = new AtomicInteger();
+    private final ConnectionRouter router = this::route;
+
+    private ReplicaRoutingDataSource(DataSource primary, Replica[] replicas, Balancing balancing, long ejectionNanos) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.balancing = balancing;
+        this.ejectionNanos = ejectionNanos;
+    }
+
+    /**
+     * Creates a routing data source.
+     *
+     * @param primary           data source for read-write and non-transactional scopes
+     * @param replicas          data sources for read-only scopes; may be empty
+     * @param balancing         replica selection strategy
+     * @param ejectionDuration  how long a replica is skipped after a failed connection attempt
+     * @return routing data source
+     * @throws NullPointerException     if any argument or replica is {@code null}
+     * @throws IllegalArgumentException if {@code ejectionDuration} is negative
+     */
+    public static ReplicaRoutingDataSource of(DataSource primary, List<? extends DataSource> replicas,
+                                              Balancing balancing, Duration ejectionDuration) {
+        Objects.requireNonNull(primary, "primary");
+        Objects.requireNonNull(replicas, "replicas");
+        Objects.requireNonNull(balancing, "balancing");
+        Objects.requireNonNull(ejectionDuration, "ejectionDuration");
+
+        if (ejectionDuration.isNegative()) {
+            throw new IllegalArgumentException("ejectionDuration must not be negative");
+        }
+
+        Replica[] wrapped = new Replica[replicas.size()];
+        for (int i = 0; i < wrapped.length; i++) {
+            wrapped[i] = new Replica(Objects.requireNonNull(replicas.get(i), "replica"));
+        }
+
+        return new ReplicaRoutingDataSource(primary, wrapped, balancing, ejectionDuration.toNanos());
+    }
+
+    /**
+     * Returns the number of scopes currently open against each replica, in construction order.
+     *
+     * @return outstanding scope count per replica
+     */
+    public int[] outstandingScopes() {
+        int[] counts = new int[replicas.length];
+        for (int i = 0; i < replicas.length; i++) {
+            counts[i] = replicas[i].outstanding.get();
+        }
+        return counts;
+    }
+
+    /**
+     * Returns whether each replica is currently ejected, in construction order.
+     *
+     * @return ejection flag per replica
+     */
+    public boolean[] ejectedReplicas() {
+        long now = System.nanoTime();
+        boolean[] ejected = new boolean[replicas.length];
+        for (int i = 0; i < replicas.length; i++) {
+            ejected[i] = !replicas[i].isHealthy(now);
+        }
+        return ejected;
+    }
+
+    /**
+     * Borrows a connection for a scope, from a replica when {@code readOnly} is set. The returned
+     * route must be released exactly once, after its connection has been closed.
+     */
+    Route route(boolean readOnly) throws SQLException {
+        if (!readOnly || replicas.length == 0) {
+            return new Route(primary.getConnection(), null);
+        }
+
+        SQLException replicaFailure = null;
+        boolean[] tried = new boolean[replicas.length];
+
+        for (int attempt = 0; attempt < replicas.length; attempt++) {
+            int index = select(tried);
+            if (index < 0) {
+                break;
+            }
+            tried[index] = true;
+
+            Replica replica = replicas[index];
+            replica.outstanding.incrementAndGet();
+            try {
+                Route route = new Route(replica.dataSource.getConnection(), replica);
+                replica.ejectedUntil = 0L;
+                return route;
+            } catch (SQLException e) {
+                replica.outstanding.decrementAndGet();
+                replica.ejectedUntil = System.nanoTime() + ejectionNanos;
+
+                if (replicaFailure == null) {
+                    replicaFailure = e;
+                } else {
+                    replicaFailure.addSuppressed(e);
+                }
+            }
+        }
+
+        try {
+            return new Route(primary.getConnection(), null);
+        } catch (SQLException primaryFailure) {
+            if (replicaFailure != null) {
+                primaryFailure.addSuppressed(replicaFailure);
+            }
+            throw primaryFailure;
+        }
+    }
+
+    /**
+     * Returns the index of the replica to try next, or {@code -1} if every healthy replica has
+     * already been tried.
+     */
+    private int select(boolean[] tried) {
+        long now = System.nanoTime();
+        int start = Math.floorMod(cursor.getAndIncrement(), replicas.length);
+
+        if (balancing == Balancing.ROUND_ROBIN) {
+            for (int i = 0; i < replicas.length; i++) {
+                int index = (start + i) % replicas.length;
+                if (!tried[index] && replicas[index].isHealthy(now)) {
+                    return index;
+                }
+            }
+            return -1;
+        }
+
+        // Scanning from a rotating start spreads ties instead of always favouring replica 0.
+        int best = -1;
+        int bestOutstanding = Integer.MAX_VALUE;
+        for (int i = 0; i < replicas.length; i++) {
+            int index = (start + i) % replicas.length;
+            Replica replica = replicas[index];
+            if (tried[index] || !replica.isHealthy(now)) {
+                continue;
+            }
+
+            int outstanding = replica.outstanding.get();
+            if (outstanding < bestOutstanding) {
+                best = index;
+                bestOutstanding = outstanding;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns a primary connection; routing applies only to connections borrowed by
+     * {@link ConnectionScope}.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return primary.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        primary.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        primary.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return primary.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return primary.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface == ConnectionRouter.class) {
+            return iface.cast(router);
+        }
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return primary.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface == ConnectionRouter.class || iface.isInstance(this) || primary.isWrapperFor(iface);
+    }
+
+    /**
+     * A borrowed connection and the replica it came from, or {@code null} for the primary.
+     */
+    record Route(Connection connection, Replica replica) implements ConnectionRouter.Route {
+
+        @Override
+        public void release() {
+            if (replica != null) {
+                replica.outstanding.decrementAndGet();
+            }
+        }
+    }
+
+    static final class Replica {
+
+        private final DataSource dataSource;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private volatile long ejectedUntil;
+
+        private Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        private boolean isHealthy(long now) {
+            long until = ejectedUntil;
+            return until == 0L || now - until >= 0;
+        }
+    }
+}
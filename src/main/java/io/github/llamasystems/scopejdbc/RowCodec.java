@@ -0,0 +1,35 @@
+package io.github.llamasystems.scopejdbc;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Serializes mapped rows for {@link JdbcClient#queryBounded}, which writes rows to a temporary
+ * file once a result outgrows its heap budget.
+ *
+ * <p>{@link #read} must consume exactly the bytes written by {@link #write} for the same value.
+ * Implementations should be stateless; the same codec may be used by several scopes at once.
+ *
+ * @param <T> row type
+ */
+public interface RowCodec<T> {
+
+    /**
+     * Writes one row.
+     *
+     * @param value row to write
+     * @param out   destination
+     * @throws IOException if writing fails
+     */
+    void write(T value, DataOutput out) throws IOException;
+
+    /**
+     * Reads one row previously written by {@link #write}.
+     *
+     * @param in source positioned at the start of the row
+     * @return decoded row
+     * @throws IOException if reading fails
+     */
+    T read(DataInput in) throws IOException;
+}
@@ -0,0 +1,316 @@
+package io.github.llamasystems.scopejdbc;
+
+import io.github.llamasystems.scopejdbc.exception.ConnectionScopeException;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Read-only, random-access list of rows stored in a memory-mapped temporary file, produced by
+ * {@link JdbcClient#queryBounded} when a result exceeds its heap budget.
+ *
+ * <p>Only the row offsets stay on the heap; each {@link #get} decodes a fresh row from the mapped
+ * file. The file is split into mappings of at most {@link Integer#MAX_VALUE} bytes at row
+ * boundaries, so results larger than 2 GiB are supported as long as no single row is. The list is
+ * owned by the scope that produced it and becomes unusable once {@link #release()} runs at scope
+ * close.
+ *
+ * @param <T> row type
+ */
+final class SpilledList<T> extends AbstractList<T> implements RandomAccess {
+
+    private static final long MAX_SEGMENT_BYTES = Integer.MAX_VALUE;
+
+    private final RowCodec<T> codec;
+    private final Path file;
+    private final long[] rowOffsets;
+    private final long[] segmentOffsets;
+    private MappedByteBuffer[] segments;
+
+    private SpilledList(RowCodec<T> codec, Path file, long[] rowOffsets, long[] segmentOffsets,
+                        MappedByteBuffer[] segments) {
+        this.codec = codec;
+        this.file = file;
+        this.rowOffsets = rowOffsets;
+        this.segmentOffsets = segmentOffsets;
+        this.segments = segments;
+    }
+
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size());
+        }
+
+        MappedByteBuffer[] mapped = segments;
+        if (mapped == null) {
+            throw new ConnectionScopeException("Spilled result is no longer available because its scope has been closed");
+        }
+
+        long offset = rowOffsets[index];
+        int segment = Arrays.binarySearch(segmentOffsets, offset);
+        if (segment < 0) {
+            segment = -segment - 2;
+        }
+
+        int start = (int) (offset - segmentOffsets[segment]);
+        int length = (int) (rowOffsets[index + 1] - offset);
+        ByteBuffer row = mapped[segment].duplicate();
+        row.position(start).limit(start + length);
+
+        try {
+            return codec.read(new DataInputStream(new ByteBufferInputStream(row)));
+        } catch (IOException e) {
+            throw new ConnectionScopeException("Failed to read spilled row " + index, e);
+        }
+    }
+
+    @Override
+    public int size() {
+        return rowOffsets.length - 1;
+    }
+
+    /**
+     * Drops the mappings and deletes the backing file. The JDK cannot unmap a file explicitly, so
+     * on platforms that refuse to delete a mapped file (notably Windows) deletion is deferred to
+     * JVM exit instead.
+     */
+    void release() {
+        segments = null;
+
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            file.toFile().deleteOnExit();
+        }
+    }
+
+    /**
+     * Accumulates rows on the heap until their estimated encoded size exceeds the budget, then
+     * moves them, and every row after them, to a temporary file.
+     *
+     * <p>While rows stay on the heap, only a sample is encoded to estimate their size: the first
+     * {@link #FULL_SAMPLE_ROWS} rows, then every {@link #SAMPLE_INTERVAL}th. A result that never
+     * exceeds the budget is therefore mostly never serialized. Every other row is encoded exactly
+     * once, when it is written to the file.
+     *
+     * @param <T> row type
+     */
+    static final class Collector<T> {
+
+        /**
+         * Number of leading rows that are all encoded to seed the size estimate.
+         */
+        static final int FULL_SAMPLE_ROWS = 16;
+
+        /**
+         * After the leading rows, one row in this many is encoded to refine the estimate.
+         */
+        static final int SAMPLE_INTERVAL = 32;
+
+        private final RowCodec<T> codec;
+        private final long heapBudgetBytes;
+        private final ExposedByteArrayOutputStream encoded = new ExposedByteArrayOutputStream();
+        private final DataOutputStream encoder = new DataOutputStream(encoded);
+
+        private List<T> heapRows = new ArrayList<>();
+        private long sampledRows;
+        private long sampledBytes;
+
+        private Path file;
+        private OutputStream fileOut;
+        private long[] rowOffsets;
+        private int rowCount;
+        private final List<Long> segmentOffsets = new ArrayList<>();
+
+        Collector(RowCodec<T> codec, long heapBudgetBytes) {
+            this.codec = codec;
+            this.heapBudgetBytes = heapBudgetBytes;
+        }
+
+        void add(T row) {
+            if (file != null) {
+                append(encode(row));
+                return;
+            }
+
+            int index = heapRows.size();
+            heapRows.add(row);
+            if (index < FULL_SAMPLE_ROWS || index % SAMPLE_INTERVAL == 0) {
+                sampledBytes += encode(row);
+                sampledRows++;
+            }
+
+            if ((double) sampledBytes / sampledRows * heapRows.size() > heapBudgetBytes) {
+                spillHeapRows();
+            }
+        }
+
+        /**
+         * Returns the collected rows: an unmodifiable heap list if the budget was never exceeded,
+         * otherwise a {@link SpilledList}.
+         */
+        List<T> finish() {
+            if (file == null) {
+                return Collections.unmodifiableList(heapRows);
+            }
+
+            try {
+                fileOut.close();
+                fileOut = null;
+
+                long size = rowOffsets[rowCount];
+                long[] segmentStarts = segmentOffsets.stream().mapToLong(Long::longValue).toArray();
+                MappedByteBuffer[] mapped = new MappedByteBuffer[segmentStarts.length];
+
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    for (int i = 0; i < segmentStarts.length; i++) {
+                        long end = i + 1 < segmentStarts.length ? segmentStarts[i + 1] : size;
+                        mapped[i] = channel.map(FileChannel.MapMode.READ_ONLY, segmentStarts[i], end - segmentStarts[i]);
+                    }
+                }
+
+                return new SpilledList<>(codec, file, Arrays.copyOf(rowOffsets, rowCount + 1), segmentStarts, mapped);
+            } catch (IOException e) {
+                abort();
+                throw new ConnectionScopeException("Failed to map spilled query result", e);
+            }
+        }
+
+        /**
+         * Deletes any partially written file after a failure.
+         */
+        void abort() {
+            if (file == null) {
+                return;
+            }
+
+            try {
+                if (fileOut != null) {
+                    fileOut.close();
+                }
+            } catch (IOException ignored) {
+                // The file is being deleted anyway.
+            } finally {
+                fileOut = null;
+            }
+
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                file.toFile().deleteOnExit();
+            }
+        }
+
+        private int encode(T row) {
+            encoded.reset();
+            try {
+                codec.write(row, encoder);
+                encoder.flush();
+            } catch (IOException e) {
+                abort();
+                throw new ConnectionScopeException("Failed to encode query row", e);
+            }
+
+            if (encoded.size() > MAX_SEGMENT_BYTES) {
+                abort();
+                throw new ConnectionScopeException("Encoded row exceeds " + MAX_SEGMENT_BYTES + " bytes");
+            }
+            return encoded.size();
+        }
+
+        private void spillHeapRows() {
+            try {
+                file = Files.createTempFile("scope-jdbc-spill-", ".bin");
+                fileOut = new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.WRITE), 64 * 1024);
+            } catch (IOException e) {
+                abort();
+                throw new ConnectionScopeException("Failed to create spill file", e);
+            }
+
+            rowOffsets = new long[Math.max(16, heapRows.size() * 2)];
+            segmentOffsets.add(0L);
+
+            List<T> rows = heapRows;
+            heapRows = null;
+            for (T row : rows) {
+                append(encode(row));
+            }
+        }
+
+        private void append(int length) {
+            long position = rowOffsets[rowCount];
+            long segmentStart = segmentOffsets.get(segmentOffsets.size() - 1);
+            if (position - segmentStart + length > MAX_SEGMENT_BYTES) {
+                segmentOffsets.add(position);
+            }
+
+            try {
+                fileOut.write(encoded.buffer(), 0, length);
+            } catch (IOException e) {
+                abort();
+                throw new ConnectionScopeException("Failed to write spill file", e);
+            }
+
+            if (rowCount + 2 > rowOffsets.length) {
+                rowOffsets = Arrays.copyOf(rowOffsets, rowOffsets.length * 2);
+            }
+            rowCount++;
+            rowOffsets[rowCount] = position + length;
+        }
+    }
+
+    private static final class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package io.github.llamasystems.scopejdbc;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide, client-side statistics for every distinct SQL string executed through a
+ * {@link JdbcClient}: call and error counts, rows returned or affected, and total, median, and
+ * 99th-percentile execute and mapping times.
+ *
+ * <p>Statistics are disabled by default and cost nothing beyond one volatile read per call until
+ * {@link #enable(int)} is invoked. While enabled, the registry is also published on the platform
+ * MBean server as {@value #OBJECT_NAME}.
+ *
+ * <p>Counters are striped {@link LongAdder}s and latencies are recorded into lock-free histograms,
+ * so concurrent scopes running the same statement do not contend on a lock. The registry tracks
+ * at most {@code maxStatements} distinct SQL strings. At capacity, calls to untracked strings are
+ * counted in a small frequency sketch, and a string is admitted only once its approximate recent
+ * call count exceeds that of the coldest of {@value #EVICTION_SAMPLE} randomly sampled tracked
+ * strings, which is then evicted along with its statistics. One-off strings therefore cannot
+ * push out established statements, while a statement that turns hot later still gets in. Recent
+ * counts are halved periodically so that formerly hot statements age out. Calls to strings that
+ * are not admitted are not recorded.
+ *
+ * <p>Calls to tracked strings take no lock. Calls to untracked strings take a lock for a constant
+ * amount of work, plus an amortized constant share of the periodic halving. A call that races
+ * with the eviction of its own string is recorded into the evicted statistics and discarded with
+ * them. Strings are keyed exactly as executed, so statements built with
+ * {@link JdbcClient#queryIn} appear once per IN-list bucket size.
+ *
+ * <pre>{@code
+ * SqlStatistics statistics = SqlStatistics.enable(200);
+ * ...
+ * statistics.getStatements().stream().limit(10).forEach(System.out::println);
+ * }</pre>
+ */
+public final class SqlStatistics implements SqlStatisticsMXBean {
+
+    /**
+     * Object name under which the enabled registry is registered.
+     */
+    public static final String OBJECT_NAME = "io.github.llamasystems.scopejdbc:type=SqlStatistics";
+
+    /**
+     * Number of tracked strings sampled when choosing an eviction victim.
+     */
+    static final int EVICTION_SAMPLE = 8;
+
+    private static volatile SqlStatistics active;
+
+    private final int maxStatements;
+    private final Map<String, Shape> shapes = new ConcurrentHashMap<>();
+    private final LongAdder evicted = new LongAdder();
+
+    // Admission state, guarded by admissionLock.
+    private final Object admissionLock = new Object();
+    private final Shape[] slots;
+    private final int[] sketch;
+    private int size;
+    private int sketchIncrements;
+
+    private SqlStatistics(int maxStatements) {
+        this.maxStatements = maxStatements;
+        this.slots = new Shape[maxStatements];
+        int width = Integer.highestOneBit((int) Math.min(1 << 24, Math.max(1024L, maxStatements * 16L)));
+        this.sketch = new int[width * 2];
+    }
+
+    /**
+     * Starts collecting statistics, replacing any registry that is already enabled.
+     *
+     * @param maxStatements maximum number of distinct SQL strings tracked at once
+     * @return the newly enabled registry
+     * @throws IllegalArgumentException if {@code maxStatements} is not positive
+     * @throws IllegalStateException    if the registry cannot be registered with JMX
+     */
+    public static synchronized SqlStatistics enable(int maxStatements) {
+        if (maxStatements <= 0) {
+            throw new IllegalArgumentException("maxStatements must be positive");
+        }
+
+        SqlStatistics statistics = new SqlStatistics(maxStatements);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            try {
+                server.registerMBean(statistics, name);
+            } catch (InstanceAlreadyExistsException e) {
+                server.unregisterMBean(name);
+                server.registerMBean(statistics, name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to register " + OBJECT_NAME, e);
+        }
+
+        active = statistics;
+        return statistics;
+    }
+
+    /**
+     * Stops collecting statistics and unregisters the MBean. Does nothing if statistics are not
+     * enabled.
+     *
+     * @throws IllegalStateException if the MBean cannot be unregistered
+     */
+    public static synchronized void disable() {
+        if (active == null) {
+            return;
+        }
+        active = null;
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+        } catch (InstanceNotFoundException ignored) {
+            // Already unregistered externally.
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to unregister " + OBJECT_NAME, e);
+        }
+    }
+
+    /**
+     * Returns the enabled registry, or {@code null} if statistics are disabled.
+     */
+    static SqlStatistics active() {
+        return active;
+    }
+
+    @Override
+    public List<StatementStatistics> getStatements() {
+        List<StatementStatistics> snapshot = new ArrayList<>(shapes.size());
+        shapes.forEach((sql, shape) -> snapshot.add(shape.snapshot(sql)));
+        snapshot.sort(Comparator.comparingLong(StatementStatistics::getTotalExecuteNanos).reversed());
+        return snapshot;
+    }
+
+    @Override
+    public int getMaxStatements() {
+        return maxStatements;
+    }
+
+    @Override
+    public long getEvictedStatements() {
+        return evicted.sum();
+    }
+
+    @Override
+    public void reset() {
+        synchronized (admissionLock) {
+            shapes.clear();
+            Arrays.fill(slots, null);
+            Arrays.fill(sketch, 0);
+            size = 0;
+            sketchIncrements = 0;
+            evicted.reset();
+        }
+    }
+
+    void record(String sql, long executeNanos, long mappingNanos, long rows) {
+        Shape shape = shape(sql);
+        if (shape == null) {
+            return;
+        }
+        shape.calls.increment();
+        shape.rows.add(rows);
+        shape.executeNanos.add(executeNanos);
+        shape.executeHistogram.record(executeNanos);
+        shape.mappingNanos.add(mappingNanos);
+        shape.mappingHistogram.record(mappingNanos);
+    }
+
+    void recordError(String sql) {
+        Shape shape = shape(sql);
+        if (shape == null) {
+            return;
+        }
+        shape.calls.increment();
+        shape.errors.increment();
+    }
+
+    /**
+     * Returns the statistics for {@code sql}, or {@code null} if it is not tracked and was not
+     * admitted by this call.
+     */
+    private Shape shape(String sql) {
+        Shape shape = shapes.get(sql);
+        if (shape != null) {
+            return shape;
+        }
+
+        synchronized (admissionLock) {
+            shape = shapes.get(sql);
+            if (shape != null) {
+                return shape;
+            }
+
+            if (size < slots.length) {
+                return track(sql, size++);
+            }
+
+            int frequency = incrementSketch(sql);
+            Shape victim = sampleVictim();
+            if (frequency <= victim.recentCalls()) {
+                return null;
+            }
+
+            shapes.remove(victim.sql);
+            evicted.increment();
+            return track(sql, victim.slot);
+        }
+    }
+
+    private Shape track(String sql, int slot) {
+        Shape shape = new Shape(sql, slot);
+        slots[slot] = shape;
+        shapes.put(sql, shape);
+        return shape;
+    }
+
+    /**
+     * Counts one call to an untracked string in a two-row count-min sketch and returns its
+     * approximate recent call count. Only the smaller of the two counters is incremented, and
+     * collisions can only overstate a count. Once the sketch has counted as many calls as one row
+     * has counters, all counts, tracked ones included, are halved.
+     */
+    private int incrementSketch(String sql) {
+        int width = sketch.length / 2;
+        int hash = sql.hashCode();
+        int first = (hash ^ (hash >>> 16)) & (width - 1);
+        int mixed = hash * 0x9E3779B9;
+        int second = width + ((mixed ^ (mixed >>> 15)) & (width - 1));
+
+        int frequency = Math.min(sketch[first], sketch[second]);
+        if (frequency < Integer.MAX_VALUE) {
+            frequency++;
+            sketch[first] = Math.max(sketch[first], frequency);
+            sketch[second] = Math.max(sketch[second], frequency);
+        }
+
+        if (++sketchIncrements >= width) {
+            sketchIncrements = 0;
+            for (int i = 0; i < sketch.length; i++) {
+                sketch[i] >>>= 1;
+            }
+            for (Shape shape : slots) {
+                shape.age();
+            }
+        }
+        return frequency;
+    }
+
+    private Shape sampleVictim() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Shape victim = null;
+        for (int i = 0; i < EVICTION_SAMPLE; i++) {
+            Shape candidate = slots[random.nextInt(size)];
+            if (victim == null || candidate.recentCalls() < victim.recentCalls()) {
+                victim = candidate;
+            }
+        }
+        return victim;
+    }
+
+    private static final class Shape {
+
+        private final String sql;
+        private final int slot;
+
+        /**
+         * Call count treated as already aged out; guarded by {@code admissionLock}.
+         */
+        private long agedCalls;
+
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder executeNanos = new LongAdder();
+        private final LongAdder mappingNanos = new LongAdder();
+        private final LatencyHistogram executeHistogram = new LatencyHistogram();
+        private final LatencyHistogram mappingHistogram = new LatencyHistogram();
+
+        private Shape(String sql, int slot) {
+            this.sql = sql;
+            this.slot = slot;
+        }
+
+        private long recentCalls() {
+            return calls.sum() - agedCalls;
+        }
+
+        private void age() {
+            agedCalls += recentCalls() / 2;
+        }
+
+        private StatementStatistics snapshot(String sql) {
+            return new StatementStatistics(
+                    sql,
+                    calls.sum(),
+                    errors.sum(),
+                    rows.sum(),
+                    executeNanos.sum(),
+                    executeHistogram.percentile(0.50),
+                    executeHistogram.percentile(0.99),
+                    mappingNanos.sum(),
+                    mappingHistogram.percentile(0.50),
+                    mappingHistogram.percentile(0.99)
+            );
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package io.github.llamasystems.scopejdbc;
+
+import java.util.List;
+
+/**
+ * JMX management interface of {@link SqlStatistics}, registered as
+ * {@value SqlStatistics#OBJECT_NAME} while statistics are enabled.
+ */
+public interface SqlStatisticsMXBean {
+
+    /**
+     * Returns statistics for every tracked SQL string, ordered by total execute time, highest
+     * first.
+     *
+     * @return per-statement statistics
+     */
+    List<StatementStatistics> getStatements();
+
+    /**
+     * Returns the maximum number of distinct SQL strings tracked at once.
+     *
+     * @return statement capacity
+     */
+    int getMaxStatements();
+
+    /**
+     * Returns how many SQL strings have been evicted to admit more frequently called ones while
+     * staying within {@link #getMaxStatements()}.
+     *
+     * @return eviction count
+     */
+    long getEvictedStatements();
+
+    /**
+     * Discards all collected statistics.
+     */
+    void reset();
+}
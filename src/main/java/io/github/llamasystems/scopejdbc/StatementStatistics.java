@@ -0,0 +1,139 @@
+package io.github.llamasystems.scopejdbc;
+
+/**
+ * Point-in-time statistics for one distinct SQL string, as reported by {@link SqlStatistics}.
+ *
+ * <p>Execute time covers preparing, binding, and executing the statement. Mapping time covers
+ * iterating the result set and running the {@link RowMapper}; it is zero for updates. Percentiles
+ * are approximate, within 12.5% of the recorded value. Counters are read independently of each
+ * other, so a snapshot taken while statements are running may be slightly inconsistent.
+ *
+ * <p>Accessors follow the JavaBeans getter convention so that instances are exposed as composite
+ * data through {@link SqlStatisticsMXBean}.
+ */
+public final class StatementStatistics {
+
+    private final String sql;
+    private final long calls;
+    private final long errors;
+    private final long rows;
+    private final long totalExecuteNanos;
+    private final long p50ExecuteNanos;
+    private final long p99ExecuteNanos;
+    private final long totalMappingNanos;
+    private final long p50MappingNanos;
+    private final long p99MappingNanos;
+
+    StatementStatistics(String sql, long calls, long errors, long rows,
+                        long totalExecuteNanos, long p50ExecuteNanos, long p99ExecuteNanos,
+                        long totalMappingNanos, long p50MappingNanos, long p99MappingNanos) {
+        this.sql = sql;
+        this.calls = calls;
+        this.errors = errors;
+        this.rows = rows;
+        this.totalExecuteNanos = totalExecuteNanos;
+        this.p50ExecuteNanos = p50ExecuteNanos;
+        this.p99ExecuteNanos = p99ExecuteNanos;
+        this.totalMappingNanos = totalMappingNanos;
+        this.p50MappingNanos = p50MappingNanos;
+        this.p99MappingNanos = p99MappingNanos;
+    }
+
+    /**
+     * Returns the SQL string these statistics describe.
+     *
+     * @return SQL text exactly as executed
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Returns the number of completed executions, successful or not.
+     *
+     * @return call count
+     */
+    public long getCalls() {
+        return calls;
+    }
+
+    /**
+     * Returns the number of executions that threw.
+     *
+     * @return error count
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * Returns the total rows returned by queries, or affected by updates, over successful calls.
+     *
+     * @return row count
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the total execute time over successful calls.
+     *
+     * @return execute time in nanoseconds
+     */
+    public long getTotalExecuteNanos() {
+        return totalExecuteNanos;
+    }
+
+    /**
+     * Returns the approximate median execute time.
+     *
+     * @return p50 execute time in nanoseconds
+     */
+    public long getP50ExecuteNanos() {
+        return p50ExecuteNanos;
+    }
+
+    /**
+     * Returns the approximate 99th-percentile execute time.
+     *
+     * @return p99 execute time in nanoseconds
+     */
+    public long getP99ExecuteNanos() {
+        return p99ExecuteNanos;
+    }
+
+    /**
+     * Returns the total mapping time over successful calls.
+     *
+     * @return mapping time in nanoseconds
+     */
+    public long getTotalMappingNanos() {
+        return totalMappingNanos;
+    }
+
+    /**
+     * Returns the approximate median mapping time.
+     *
+     * @return p50 mapping time in nanoseconds
+     */
+    public long getP50MappingNanos() {
+        return p50MappingNanos;
+    }
+
+    /**
+     * Returns the approximate 99th-percentile mapping time.
+     *
+     * @return p99 mapping time in nanoseconds
+     */
+    public long getP99MappingNanos() {
+        return p99MappingNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "StatementStatistics{sql='" + sql + "', calls=" + calls + ", errors=" + errors + ", rows=" + rows
+                + ", totalExecuteNanos=" + totalExecuteNanos + ", p50ExecuteNanos=" + p50ExecuteNanos
+                + ", p99ExecuteNanos=" + p99ExecuteNanos + ", totalMappingNanos=" + totalMappingNanos
+                + ", p50MappingNanos=" + p50MappingNanos + ", p99MappingNanos=" + p99MappingNanos + "}";
+    }
+}
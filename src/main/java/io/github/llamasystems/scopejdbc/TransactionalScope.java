@@ -13,7 +13,7 @@ final class TransactionalScope extends AbstractConnectionScope {
     private final boolean readOnly;
 
     TransactionalScope(DataSource dataSource, boolean readOnly) {
-        super(dataSource);
+        super(dataSource, readOnly);
         this.readOnly = readOnly;
 
         SQLException failure = null;